@@ -0,0 +1,68 @@
+package com.example.chatbot.prompt;
+
+import com.example.chatbot.config.ChatProperties;
+import com.example.chatbot.config.ModelProperties;
+import com.example.chatbot.entity.ChatMessage;
+import com.example.chatbot.retrieval.Passage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// 每轮对话的上下文组装：按 token 预算裁剪检索段落和历史消息并生成提示词
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class PromptAssemblyBenchmark {
+
+    // 4096 时历史消息会被裁剪，32768 时全部放入
+    @Param({"4096", "32768"})
+    private int contextWindow;
+
+    private PromptAssembler assembler;
+    private ModelProperties.ModelOption modelOption;
+    private List<Passage> passages;
+    private List<ChatMessage> history;
+
+    @Setup
+    public void setUp() {
+        assembler = new PromptAssembler(new ChatProperties());
+        modelOption = new ModelProperties.ModelOption();
+        modelOption.setModel("qwen3:4b");
+        modelOption.setContextWindow(contextWindow);
+        passages = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            passages.add(new Passage((long) i, (long) i, "知识条目" + i, 0,
+                    ("第" + i + "条知识：系统每天凌晨自动备份数据，备份文件保留三十天，可在管理后台下载。").repeat(6)));
+        }
+        history = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            ChatMessage message = new ChatMessage();
+            message.setRole(i % 2 == 0 ? "user" : "assistant");
+            message.setContent(i % 2 == 0
+                    ? "第" + i + "个问题：备份文件在哪里下载？"
+                    : "在管理后台的数据备份页面选择日期后下载，文件保留三十天。".repeat(4));
+            history.add(message);
+        }
+    }
+
+    @Benchmark
+    public AssembledPrompt assemble() {
+        return assembler.assemble("你是一个专业的客服助手，请根据以下知识库内容回答用户问题。\n\n",
+                "备份文件最多保留多久？", passages, history, modelOption);
+    }
+}
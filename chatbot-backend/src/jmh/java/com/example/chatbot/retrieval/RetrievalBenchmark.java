@@ -0,0 +1,75 @@
+package com.example.chatbot.retrieval;
+
+import com.example.chatbot.config.RetrievalProperties;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// 知识检索：问题分词和 BM25 倒排索引查询。段落由固定种子生成，每次运行的索引内容相同
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class RetrievalBenchmark {
+    private static final String[] PHRASES = {
+            "重置密码", "邮箱验证码", "数据备份", "自动备份", "保留三十天", "管理后台", "下载文件", "接口文档",
+            "登录失败", "账号锁定", "权限不足", "联系管理员", "知识库", "会话历史", "模型切换", "响应超时",
+            "API", "token", "backup", "login", "session", "timeout", "错误代码", "系统维护"
+    };
+    private static final String[] QUESTIONS = {
+            "我忘记密码了，怎么重置？", "备份文件保存多久", "登录失败后账号会被锁定吗", "API token 过期怎么办",
+            "在哪里下载备份文件", "权限不足应该联系谁", "会话历史能保留多久", "响应超时是什么原因"
+    };
+
+    @Param({"1000", "10000"})
+    private int passageCount;
+
+    private InvertedIndex index;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        List<Passage> passages = new ArrayList<>(passageCount);
+        for (int i = 0; i < passageCount; i++) {
+            StringBuilder text = new StringBuilder();
+            for (int j = 0; j < 30; j++) {
+                text.append(PHRASES[random.nextInt(PHRASES.length)]).append(j % 5 == 4 ? "。" : "，");
+            }
+            passages.add(new Passage((long) i, (long) (i / 4), "知识条目" + i / 4, i % 4, text.toString()));
+        }
+        index = new InvertedIndex(new RetrievalProperties());
+        index.rebuild(passages);
+    }
+
+    @Benchmark
+    public List<String> tokenize() {
+        return TextTokenizer.tokenize(nextQuestion());
+    }
+
+    @Benchmark
+    public List<ScoredPassage> search() {
+        return index.search(nextQuestion(), 5);
+    }
+
+    // 依次轮换固定的问题，各次运行的查询序列一致
+    private String nextQuestion() {
+        next = (next + 1) % QUESTIONS.length;
+        return QUESTIONS[next];
+    }
+}
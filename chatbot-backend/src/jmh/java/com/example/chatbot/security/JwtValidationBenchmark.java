@@ -0,0 +1,78 @@
+package com.example.chatbot.security;
+
+import com.example.chatbot.repository.UserRepository;
+import io.jsonwebtoken.Claims;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// 每个请求都要做的令牌验证：直接验签解析、验证缓存命中，以及被篡改的令牌被拒绝
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class JwtValidationBenchmark {
+    private static final String SECRET = "404E635266556A586E3272357538782F413F4428472B4B6250645367566B5970";
+    private static final long EXPIRATION = 86_400_000L;
+
+    private JwtTokenProvider provider;
+    private VerifiedTokenCache verifiedTokenCache;
+    private String token;
+    private String tamperedToken;
+
+    @Setup
+    public void setUp() {
+        provider = new JwtTokenProvider();
+        ReflectionTestUtils.setField(provider, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(provider, "jwtExpirationInMs", (int) EXPIRATION);
+        provider.init();
+        List<SimpleGrantedAuthority> authorities = List.of(new SimpleGrantedAuthority("ROLE_USER"));
+        AuthenticatedUser user = new AuthenticatedUser(1L, "benchmark", null, authorities);
+        token = provider.generateToken(new UsernamePasswordAuthenticationToken(user, null, authorities));
+        // 改动签名中间的一个字符（最后一个字符可能只包含填充位）
+        int index = token.length() - 10;
+        char original = token.charAt(index);
+        tamperedToken = token.substring(0, index) + (original == 'A' ? 'B' : 'A') + token.substring(index + 1);
+
+        // 令牌带有用户 id 且用户未变更，只有首次验证查询一次凭据变更时间，之后全部命中缓存
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.findCredentialsStamp(1L))
+                .thenReturn(Optional.of(mock(UserRepository.CredentialsStamp.class)));
+        verifiedTokenCache = new VerifiedTokenCache(provider, userRepository, EXPIRATION, 1000);
+        verifiedTokenCache.verify(token);
+    }
+
+    @Benchmark
+    public Claims parseClaims() {
+        return provider.parseClaims(token);
+    }
+
+    @Benchmark
+    public AuthenticatedUser verifyCached() {
+        return verifiedTokenCache.verify(token);
+    }
+
+    @Benchmark
+    public boolean rejectTampered() {
+        return provider.validateToken(tamperedToken);
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.chatbot.service;
+
+import com.example.chatbot.config.ChatProperties;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// 一段回答的 SSE 序列化：逐个片段发送与经 SseFrameBuffer 合并成帧后发送。
+// 每个事件按 StringHttpMessageConverter 的方式编码为 UTF-8 写出，返回写出的帧数
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Thread)
+public class SseSerializationBenchmark {
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream(16 * 1024);
+    private final ChatProperties.Frame frame = new ChatProperties.Frame();
+    private List<String> tokens;
+    private int frames;
+
+    @Setup
+    public void setUp() {
+        String answer = "点击登录页面的忘记密码，输入注册邮箱后通过验证码重置。如果没有收到邮件，请检查垃圾邮件文件夹。".repeat(8);
+        tokens = new ArrayList<>();
+        for (int i = 0; i < answer.length(); i += 2) {
+            tokens.add(answer.substring(i, Math.min(i + 2, answer.length())));
+        }
+    }
+
+    @Benchmark
+    public int perToken() {
+        out.reset();
+        frames = 0;
+        for (String token : tokens) {
+            write("message", token);
+        }
+        return frames;
+    }
+
+    @Benchmark
+    public int framed() {
+        out.reset();
+        frames = 0;
+        SseFrameBuffer buffer = new SseFrameBuffer(frame, this::write, Schedulers.immediate());
+        for (String token : tokens) {
+            buffer.append("message", token);
+        }
+        buffer.flush();
+        buffer.close();
+        return frames;
+    }
+
+    private void write(String name, String data) {
+        for (ResponseBodyEmitter.DataWithMediaType part : SseEmitter.event().name(name).data(data).build()) {
+            out.writeBytes(part.getData().toString().getBytes(StandardCharsets.UTF_8));
+        }
+        frames++;
+    }
+}
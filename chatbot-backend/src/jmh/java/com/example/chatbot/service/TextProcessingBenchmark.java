@@ -0,0 +1,81 @@
+package com.example.chatbot.service;
+
+import com.example.chatbot.inference.ThinkingFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// 每条消息都要经过的文本处理：用户消息的正则清理、完整回答的思考过程剥离，以及流式片段的增量过滤
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class TextProcessingBenchmark {
+
+    private String message;
+    private String longMessage;
+    private String response;
+    // response 按 Ollama 流式输出的粒度拆成的片段
+    private List<String> chunks;
+
+    @Setup
+    public void setUp() {
+        message = "\n\t 你好，我想问一下   如何重置密码？\r\n我已经试过   邮箱验证码了。\n";
+        longMessage = ("请帮我看一下这段报错：\n\tat com.example.Service.call(Service.java:42)\n   "
+                + "Caused by: java.lang.IllegalStateException   连接超时\n").repeat(20);
+        response = "<think>" + "用户想知道如何重置密码，需要先确认账号绑定的邮箱。".repeat(20) + "</think>\n\n"
+                + "点击登录页面的忘记密码，输入注册邮箱后通过验证码重置。".repeat(10);
+        chunks = new ArrayList<>();
+        for (int i = 0; i < response.length(); i += 3) {
+            chunks.add(response.substring(i, Math.min(i + 3, response.length())));
+        }
+    }
+
+    @Benchmark
+    public String cleanMessage() {
+        return ChatService.cleanMessage(message);
+    }
+
+    @Benchmark
+    public String cleanLongMessage() {
+        return ChatService.cleanMessage(longMessage);
+    }
+
+    @Benchmark
+    public String stripThinking() {
+        return ThinkingFilter.strip(response);
+    }
+
+    @Benchmark
+    public void filterStreamedResponse(Blackhole blackhole) {
+        ThinkingFilter filter = new ThinkingFilter(new ThinkingFilter.Listener() {
+            @Override
+            public void onAnswer(String text) {
+                blackhole.consume(text);
+            }
+
+            @Override
+            public void onReasoning(String text) {
+                blackhole.consume(text);
+            }
+        });
+        for (String chunk : chunks) {
+            filter.accept(chunk);
+        }
+        filter.finish();
+    }
+}
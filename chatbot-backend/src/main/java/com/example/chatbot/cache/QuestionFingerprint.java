@@ -0,0 +1,75 @@
+package com.example.chatbot.cache;
+
+import com.example.chatbot.retrieval.TextTokenizer;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+public final class QuestionFingerprint {
+    // 不影响问题含义的客套话和语气词
+    private static final Pattern FILLER = Pattern.compile("请问|你好|您好|麻烦|谢谢|一下|[吗呢吧啊呀哈]");
+    private static final Set<String> STOP_WORDS = Set.of(
+            "please", "hi", "hello", "thanks", "the", "a", "an", "is", "are", "do", "does", "can", "i", "you");
+
+    private QuestionFingerprint() {
+    }
+
+    // 去掉语气词后的词项集合，重复词项只计一次，与语序无关
+    public static Set<String> features(String question) {
+        Set<String> features = new LinkedHashSet<>();
+        if (question == null) {
+            return features;
+        }
+        List<String> tokens = TextTokenizer.tokenize(FILLER.matcher(question).replaceAll(" "));
+        for (String token : tokens) {
+            if (STOP_WORDS.contains(token)) {
+                continue;
+            }
+            features.add(token);
+            // 汉字二元组对语序敏感，同时加入单字
+            if (token.codePointCount(0, token.length()) == 2 && Character.isIdeographic(token.codePointAt(0))) {
+                token.codePoints().forEach(cp -> features.add(new String(Character.toChars(cp))));
+            }
+        }
+        return features;
+    }
+
+    // 64 位 SimHash：每个词项的哈希按位投票，相似的问题只有少数位不同
+    public static long simHash(Set<String> features) {
+        int[] votes = new int[64];
+        for (String feature : features) {
+            long hash = hash64(feature);
+            for (int bit = 0; bit < 64; bit++) {
+                votes[bit] += ((hash >>> bit) & 1L) == 1L ? 1 : -1;
+            }
+        }
+        long fingerprint = 0L;
+        for (int bit = 0; bit < 64; bit++) {
+            if (votes[bit] > 0) {
+                fingerprint |= 1L << bit;
+            }
+        }
+        return fingerprint;
+    }
+
+    public static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+
+    // FNV-1a 后再做一次 splitmix64 混合，使各位分布均匀
+    static long hash64(String text) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < text.length(); i++) {
+            hash ^= text.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 30;
+        hash *= 0xbf58476d1ce4e5b9L;
+        hash ^= hash >>> 27;
+        hash *= 0x94d049bb133111ebL;
+        hash ^= hash >>> 31;
+        return hash;
+    }
+}
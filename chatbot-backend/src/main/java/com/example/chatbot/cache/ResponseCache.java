@@ -0,0 +1,121 @@
+package com.example.chatbot.cache;
+
+import com.example.chatbot.config.ChatProperties;
+import com.example.chatbot.config.ModelProperties;
+import com.example.chatbot.dto.CacheStatsResponse;
+import com.example.chatbot.retrieval.Passage;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// 常见问题的回答缓存。键包含检索到的段落及其所属知识条目的版本号，知识条目更新或删除后相关回答随之失效
+@Component
+public class ResponseCache implements MeterBinder {
+    private static final Logger log = LoggerFactory.getLogger(ResponseCache.class);
+
+    private final ChatProperties.ResponseCache properties;
+    private final Cache<Key, String> cache;
+    // 知识条目 id -> 引用了该条目的缓存键
+    private final Map<Long, Set<Key>> dependents = new ConcurrentHashMap<>();
+    // 知识条目 id -> 版本号，每次失效加一，正在生成中的旧版本回答写入后也不会再被命中
+    private final Map<Long, Long> versions = new ConcurrentHashMap<>();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public ResponseCache(ChatProperties chatProperties) {
+        this.properties = chatProperties.getResponseCache();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxEntries())
+                .expireAfterWrite(properties.getTtl())
+                .recordStats()
+                .removalListener((Key key, String value, RemovalCause cause) -> {
+                    if (key != null) {
+                        key.knowledgeIds().forEach(id -> dependents.computeIfPresent(id, (k, keys) -> {
+                            keys.remove(key);
+                            return keys.isEmpty() ? null : keys;
+                        }));
+                    }
+                })
+                .build();
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    public Key keyOf(String question, String modelId, ModelProperties.ModelOption modelOption, List<Passage> passages) {
+        String options = modelOption.getModel() + "|" + modelOption.getTemperature() + "|" + modelOption.getTopP()
+                + "|" + modelOption.getTopK() + "|" + modelOption.getContextWindow()
+                + "|" + modelOption.getResponseReserve();
+        List<Long> passageIds = passages.stream().map(Passage::id).toList();
+        List<Long> knowledgeIds = passages.stream().map(Passage::knowledgeId).distinct().toList();
+        List<Long> knowledgeVersions = knowledgeIds.stream().map(id -> versions.getOrDefault(id, 0L)).toList();
+        return new Key(normalize(question), modelId, options, passageIds, knowledgeIds, knowledgeVersions);
+    }
+
+    public String get(Key key) {
+        return cache.getIfPresent(key);
+    }
+
+    public void put(Key key, String response) {
+        if (response == null || response.isBlank()) {
+            return;
+        }
+        // 先登记依赖再写入，保证失效时一定能找到该键
+        key.knowledgeIds().forEach(id -> dependents.computeIfAbsent(id, k -> ConcurrentHashMap.newKeySet()).add(key));
+        cache.put(key, response);
+    }
+
+    public void invalidateKnowledge(Long knowledgeId) {
+        versions.merge(knowledgeId, 1L, Long::sum);
+        Set<Key> keys = dependents.remove(knowledgeId);
+        if (keys != null && !keys.isEmpty()) {
+            cache.invalidateAll(keys);
+            invalidations.addAndGet(keys.size());
+            log.debug("Invalidated {} cached responses for knowledge {}", keys.size(), knowledgeId);
+        }
+    }
+
+    // 命中率由 cache_gets_total{cache="response"} 按 result 计算
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "response");
+    }
+
+    public CacheStatsResponse stats() {
+        CacheStats stats = cache.stats();
+        return CacheStatsResponse.builder()
+                .size(cache.estimatedSize())
+                .hitCount(stats.hitCount())
+                .missCount(stats.missCount())
+                .hitRate(stats.hitRate())
+                .evictionCount(stats.evictionCount())
+                .invalidationCount(invalidations.get())
+                .build();
+    }
+
+    // 忽略大小写、多余空白和句末标点，使同一问题的不同写法命中同一缓存
+    static String normalize(String question) {
+        return question.toLowerCase(Locale.ROOT)
+                .replaceAll("\\s+", " ")
+                .replaceAll("[\\s?？!！.。~～]+$", "")
+                .trim();
+    }
+
+    public record Key(String question, String modelId, String options, List<Long> passageIds,
+                      List<Long> knowledgeIds, List<Long> knowledgeVersions) {
+    }
+}
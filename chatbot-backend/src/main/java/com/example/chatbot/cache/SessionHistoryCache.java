@@ -0,0 +1,152 @@
+package com.example.chatbot.cache;
+
+import com.example.chatbot.config.ChatProperties;
+import com.example.chatbot.dto.CacheStatsResponse;
+import com.example.chatbot.entity.ChatMessage;
+import com.example.chatbot.entity.User;
+import com.example.chatbot.repository.ChatMessageRepository;
+import com.example.chatbot.service.ChatMessageWriter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+// 每个会话最近若干条消息的环形缓冲区。首次访问时从数据库加载，之后随消息保存同步追加，活跃会话构建上下文时不再查询数据库
+@Component
+public class SessionHistoryCache implements MeterBinder {
+    private final ChatMessageRepository chatMessageRepository;
+    private final ChatMessageWriter chatMessageWriter;
+    private final ChatProperties.History properties;
+    private final Cache<SessionKey, HistoryBuffer> cache;
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private record SessionKey(Long userId, String sessionId) {
+    }
+
+    public SessionHistoryCache(ChatProperties chatProperties, ChatMessageRepository chatMessageRepository,
+                               ChatMessageWriter chatMessageWriter) {
+        this.chatMessageRepository = chatMessageRepository;
+        this.chatMessageWriter = chatMessageWriter;
+        this.properties = chatProperties.getHistory();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getCacheMaxSessions())
+                .expireAfterAccess(properties.getCacheIdleTimeout())
+                .recordStats()
+                .build();
+    }
+
+    // 按时间正序返回最近的消息
+    public List<ChatMessage> recent(String sessionId, User user) {
+        if (!properties.isCacheEnabled()) {
+            return load(sessionId, user);
+        }
+        return cache.get(new SessionKey(user.getId(), sessionId),
+                key -> new HistoryBuffer(properties.getMaxMessages(), load(sessionId, user))).snapshot();
+    }
+
+    // 消息保存后调用；处于事务中时等提交后再追加，避免回滚后缓存中残留消息
+    public void append(ChatMessage message) {
+        if (!properties.isCacheEnabled()) {
+            return;
+        }
+        SessionKey key = new SessionKey(message.getUser().getId(), message.getSessionId());
+        // 只追加到已缓存的会话，未缓存的会话下次访问时会从数据库加载到这条消息
+        afterCommit(() -> cache.asMap().computeIfPresent(key, (k, buffer) -> {
+            buffer.append(message);
+            return buffer;
+        }));
+    }
+
+    public void evict(String sessionId, User user) {
+        cache.invalidate(new SessionKey(user.getId(), sessionId));
+        invalidations.incrementAndGet();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "session-history");
+    }
+
+    public CacheStatsResponse stats() {
+        CacheStats stats = cache.stats();
+        return CacheStatsResponse.builder()
+                .size(cache.estimatedSize())
+                .hitCount(stats.hitCount())
+                .missCount(stats.missCount())
+                .hitRate(stats.hitRate())
+                .evictionCount(stats.evictionCount())
+                .invalidationCount(invalidations.get())
+                .build();
+    }
+
+    private List<ChatMessage> load(String sessionId, User user) {
+        // 异步写入模式下，先等该用户排队中的消息落库
+        chatMessageWriter.awaitUserWrites(user.getId());
+        List<ChatMessage> history = chatMessageRepository.findBySessionIdAndUserOrderByCreatedAtDesc(
+                sessionId, user, Limit.of(properties.getMaxMessages()));
+        Collections.reverse(history);
+        return history;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    // 固定容量的环形缓冲区，写满后覆盖最旧的消息
+    private static final class HistoryBuffer {
+        private final ChatMessage[] messages;
+        private int start;
+        private int size;
+        private long lastId = Long.MIN_VALUE;
+
+        HistoryBuffer(int capacity, List<ChatMessage> initial) {
+            messages = new ChatMessage[Math.max(1, capacity)];
+            initial.forEach(this::append);
+        }
+
+        synchronized void append(ChatMessage message) {
+            // 加载与追加并发时，数据库中已读到的消息不再重复追加
+            if (message.getId() != null) {
+                if (message.getId() <= lastId) {
+                    return;
+                }
+                lastId = message.getId();
+            }
+            if (size < messages.length) {
+                messages[(start + size) % messages.length] = message;
+                size++;
+            } else {
+                messages[start] = message;
+                start = (start + 1) % messages.length;
+            }
+        }
+
+        synchronized List<ChatMessage> snapshot() {
+            List<ChatMessage> result = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                result.add(messages[(start + i) % messages.length]);
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.example.chatbot.cache;
+
+import com.example.chatbot.config.ChatProperties;
+import com.example.chatbot.repository.ChatMessageRepository;
+import com.example.chatbot.repository.KnowledgeBaseRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// 已回答问题的 SimHash 指纹索引，用于近似重复问题直接复用历史回答。
+// 指纹分成 8 段、每段 8 位建桶：海明距离不超过 7 的两个指纹至少有一段完全相同，只需比较同桶的候选。
+// 按用户和模型分开索引：回答可能引用问题中的订单号等个人信息，不能返回给其他用户
+@Component
+public class SimilarQuestionIndex {
+    private static final Logger log = LoggerFactory.getLogger(SimilarQuestionIndex.class);
+    private static final int BANDS = 8;
+    private static final int BAND_BITS = 64 / BANDS;
+
+    private final ChatProperties.SimilarQuestion properties;
+    private final ChatMessageRepository chatMessageRepository;
+    private final KnowledgeBaseRepository knowledgeBaseRepository;
+
+    // 条目按下标存放在并行的基本类型数组中，messageId 为 -1 表示已删除
+    private long[] fingerprints = new long[0];
+    private long[] messageIds = new long[0];
+    private int count;
+    // 桶键 -> 条目下标，数组首元素为实际数量
+    private final Map<Long, int[]> buckets = new HashMap<>();
+    // 用户 id 和模型 id -> 桶键中的作用域编号
+    private final Map<String, Integer> scopes = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile long knowledgeVersion;
+
+    // 查询时捕获的指纹和知识库版本，生成回答期间知识库发生变化时不再登记该回答
+    public record Probe(Long userId, String modelId, long fingerprint, long knowledgeVersion) {
+    }
+
+    public SimilarQuestionIndex(ChatProperties chatProperties, ChatMessageRepository chatMessageRepository,
+                                KnowledgeBaseRepository knowledgeBaseRepository) {
+        this.properties = chatProperties.getSimilarQuestion();
+        this.chatMessageRepository = chatMessageRepository;
+        this.knowledgeBaseRepository = knowledgeBaseRepository;
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    // 从数据库中恢复当前知识库版本下的指纹，只读取 id、用户、模型和指纹四列
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        if (!isEnabled()) {
+            return;
+        }
+        long version = currentKnowledgeVersion();
+        List<ChatMessageRepository.FingerprintRow> rows = chatMessageRepository.findFingerprints(
+                version, Limit.of(properties.getMaxEntries()));
+        lock.writeLock().lock();
+        try {
+            clearInternal();
+            knowledgeVersion = version;
+            // 查询结果按 id 倒序，逆序加入使较新的回答排在后面
+            for (int i = rows.size() - 1; i >= 0; i--) {
+                ChatMessageRepository.FingerprintRow row = rows.get(i);
+                addInternal(scopeKey(row.getUserId(), row.getModelId()), row.getQuestionFingerprint(), row.getId());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Similar question index built with {} answers", rows.size());
+    }
+
+    // 知识库有任何变化时，旧回答都可能过时，整体作废
+    public void onKnowledgeChanged() {
+        if (!isEnabled()) {
+            return;
+        }
+        long version = currentKnowledgeVersion();
+        lock.writeLock().lock();
+        try {
+            clearInternal();
+            knowledgeVersion = version;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // 词项太少的问题（如"你好"）指纹不可靠，返回 null 表示不参与匹配
+    public Probe probe(Long userId, String modelId, String question) {
+        if (!isEnabled()) {
+            return null;
+        }
+        Set<String> features = QuestionFingerprint.features(question);
+        if (features.size() < properties.getMinFeatures()) {
+            return null;
+        }
+        return new Probe(userId, modelId, QuestionFingerprint.simHash(features), knowledgeVersion);
+    }
+
+    // 返回距离最近的历史回答消息 id，没有足够相似的问题时返回 null
+    public Long findAnswer(Probe probe) {
+        int maxDistance = Math.min(properties.getMaxDistance(), BANDS - 1);
+        lock.readLock().lock();
+        try {
+            if (probe.knowledgeVersion() != knowledgeVersion) {
+                return null;
+            }
+            Integer scope = scopes.get(scopeKey(probe.userId(), probe.modelId()));
+            if (scope == null) {
+                return null;
+            }
+            int best = -1;
+            int bestDistance = Integer.MAX_VALUE;
+            for (int band = 0; band < BANDS; band++) {
+                int[] bucket = buckets.get(bucketKey(scope, band, probe.fingerprint()));
+                if (bucket == null) {
+                    continue;
+                }
+                for (int i = 1; i <= bucket[0]; i++) {
+                    int entry = bucket[i];
+                    if (messageIds[entry] < 0) {
+                        continue;
+                    }
+                    int distance = QuestionFingerprint.distance(probe.fingerprint(), fingerprints[entry]);
+                    // 距离相同时取较新的回答
+                    if (distance <= maxDistance && (distance < bestDistance || (distance == bestDistance && entry > best))) {
+                        best = entry;
+                        bestDistance = distance;
+                    }
+                }
+            }
+            return best < 0 ? null : messageIds[best];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void add(Probe probe, long messageId) {
+        lock.writeLock().lock();
+        try {
+            if (probe.knowledgeVersion() != knowledgeVersion || count >= properties.getMaxEntries()) {
+                return;
+            }
+            addInternal(scopeKey(probe.userId(), probe.modelId()), probe.fingerprint(), messageId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // 对应的消息已被删除（如会话被删除）时调用
+    public void remove(long messageId) {
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < count; i++) {
+                if (messageIds[i] == messageId) {
+                    messageIds[i] = -1;
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public long knowledgeVersion() {
+        return knowledgeVersion;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // 知识条目数、最大 id 和最后修改时间任一变化都会得到新的版本号
+    private long currentKnowledgeVersion() {
+        KnowledgeBaseRepository.VersionStamp stamp = knowledgeBaseRepository.findVersionStamp();
+        return QuestionFingerprint.hash64(stamp.getEntryCount() + "|" + stamp.getMaxId() + "|" + stamp.getLastModified());
+    }
+
+    private void addInternal(String scopeKey, long fingerprint, long messageId) {
+        if (count == fingerprints.length) {
+            int capacity = Math.max(16, count * 2);
+            fingerprints = Arrays.copyOf(fingerprints, capacity);
+            messageIds = Arrays.copyOf(messageIds, capacity);
+        }
+        int entry = count++;
+        fingerprints[entry] = fingerprint;
+        messageIds[entry] = messageId;
+        int scope = scopes.computeIfAbsent(scopeKey, k -> scopes.size());
+        for (int band = 0; band < BANDS; band++) {
+            buckets.merge(bucketKey(scope, band, fingerprint), new int[]{1, entry}, (bucket, single) -> {
+                int size = bucket[0] + 1;
+                if (size == bucket.length) {
+                    bucket = Arrays.copyOf(bucket, bucket.length * 2);
+                }
+                bucket[size] = entry;
+                bucket[0] = size;
+                return bucket;
+            });
+        }
+    }
+
+    private void clearInternal() {
+        fingerprints = new long[0];
+        messageIds = new long[0];
+        count = 0;
+        buckets.clear();
+        scopes.clear();
+    }
+
+    private static String scopeKey(Long userId, String modelId) {
+        return userId + "|" + modelId;
+    }
+
+    private static long bucketKey(int scope, int band, long fingerprint) {
+        long bits = (fingerprint >>> (band * BAND_BITS)) & 0xFFL;
+        return ((long) scope << 16) | ((long) band << 8) | bits;
+    }
+}
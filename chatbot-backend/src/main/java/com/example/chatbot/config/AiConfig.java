@@ -2,18 +2,23 @@ package com.example.chatbot.config;
 
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.client.advisor.SimpleLoggerAdvisor;
-import org.springframework.ai.ollama.OllamaChatModel;
+import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Bean;
 
 @Configuration
 public class AiConfig {
+    // 每个 Ollama 节点一个 ChatClient，使用相同的默认系统提示和日志
     @Bean
-    public ChatClient chatClient(OllamaChatModel model){
-        return ChatClient
+    public ChatClientFactory chatClientFactory(){
+        return model -> ChatClient
                 .builder(model)
                 .defaultSystem("你的名字是强哥,集智慧与帅气与一身的AI机器人")
                 .defaultAdvisors(new SimpleLoggerAdvisor())
                 .build();
     }
+
+    public interface ChatClientFactory {
+        ChatClient create(ChatModel model);
+    }
 }
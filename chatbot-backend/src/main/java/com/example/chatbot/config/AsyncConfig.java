@@ -0,0 +1,32 @@
+package com.example.chatbot.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.concurrent.DelegatingSecurityContextExecutorService;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class AsyncConfig {
+
+    @Bean(destroyMethod = "dispose")
+    public Scheduler chatStreamScheduler(ChatProperties chatProperties) {
+        ChatProperties.Stream stream = chatProperties.getStream();
+        // 有界队列只在线程数未达核心数时才创建新线程，因此核心数与上限相同；
+        // 允许核心线程空闲超时，低负载时线程被回收，所有线程都忙时任务才进入队列
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                stream.getPoolSize(),
+                stream.getPoolSize(),
+                60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(stream.getQueueCapacity()),
+                new CustomizableThreadFactory("chat-stream-"));
+        executor.allowCoreThreadTimeOut(true);
+        // 提交任务时捕获当前线程的 SecurityContext，并在工作线程中还原
+        return Schedulers.fromExecutorService(new DelegatingSecurityContextExecutorService(executor), "chat-stream");
+    }
+}
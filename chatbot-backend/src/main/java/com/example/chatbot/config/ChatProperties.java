@@ -0,0 +1,123 @@
+package com.example.chatbot.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "chatbot.chat")
+public class ChatProperties {
+    private Stream stream = new Stream();
+    private History history = new History();
+    private Prompt prompt = new Prompt();
+    private ResponseCache responseCache = new ResponseCache();
+    private SimilarQuestion similarQuestion = new SimilarQuestion();
+    private Persistence persistence = new Persistence();
+    private Paging paging = new Paging();
+    private Summary summary = new Summary();
+    private Coalescing coalescing = new Coalescing();
+
+    @Data
+    public static class Stream {
+        // true: 在独立线程池中准备请求并以非阻塞方式订阅模型输出；false: 在Servlet请求线程中同步完成
+        private boolean async = true;
+        private Duration timeout = Duration.ofMinutes(5);
+        // 线程数上限，空闲超过 60 秒的线程被回收；所有线程都忙时最多排队 queueCapacity 个任务，超出时返回错误
+        private int poolSize = 64;
+        private int queueCapacity = 2000;
+        // 推理模型的思考过程：EVENT 以 reasoning 事件单独发送，DROP 直接丢弃；两种方式都不计入回答
+        private Reasoning reasoning = Reasoning.EVENT;
+        private Frame frame = new Frame();
+    }
+
+    @Data
+    public static class Frame {
+        // 把模型片段合并为较大的 SSE 帧，减少每个流的写出和刷新次数
+        private boolean enabled = true;
+        // 缓冲达到该字符数、等待超过 maxDelay 或遇到句末标点时立即发送
+        private int maxChars = 64;
+        private Duration maxDelay = Duration.ofMillis(40);
+        private boolean flushOnSentence = true;
+    }
+
+    public enum Reasoning {
+        EVENT, DROP
+    }
+
+    @Data
+    public static class History {
+        // 每轮最多加载的历史消息数，实际发送数量还受提示词预算限制
+        private int maxMessages = 20;
+        // 按会话缓存最近的消息，活跃会话构建上下文时不再查询数据库
+        private boolean cacheEnabled = true;
+        private long cacheMaxSessions = 10000;
+        private Duration cacheIdleTimeout = Duration.ofMinutes(30);
+    }
+
+    @Data
+    public static class Prompt {
+        // 聊天模板、特殊标记等无法逐条估算的固定开销
+        private int overheadTokens = 64;
+    }
+
+    @Data
+    public static class ResponseCache {
+        private boolean enabled = true;
+        private long maxEntries = 1000;
+        private Duration ttl = Duration.ofHours(1);
+    }
+
+    @Data
+    public static class SimilarQuestion {
+        private boolean enabled = true;
+        // 指纹海明距离不超过该值视为同一问题，最大为 7。只差一个关键字的问题（如"被封"和"被盗"）距离通常为 5-9，不宜调大
+        private int maxDistance = 3;
+        // 去掉语气词后至少包含的词项数，过短的问题不参与匹配
+        private int minFeatures = 4;
+        private int maxEntries = 100000;
+    }
+
+    @Data
+    public static class Persistence {
+        // true: 消息先进入队列，由后台线程批量写入；进程异常退出时最多丢失最近 maxDelay 内的消息
+        private boolean writeBehind = false;
+        private int queueCapacity = 10000;
+        private int batchSize = 50;
+        // 消息在队列中等待的最长时间
+        private Duration maxDelay = Duration.ofMillis(200);
+        // 关闭时等待队列写完、读请求等待自己的消息落库的最长时间
+        private Duration flushTimeout = Duration.ofSeconds(10);
+    }
+
+    @Data
+    public static class Paging {
+        // 会话列表等分页接口未指定 limit 时的每页条数，以及允许的最大条数
+        private int defaultSize = 20;
+        private int maxSize = 100;
+    }
+
+    @Data
+    public static class Summary {
+        // 长会话在后台把较早的消息压缩为摘要，提示词只带摘要和最近几轮
+        private boolean enabled = true;
+        // 生成摘要使用的模型，对应 chatbot.model.options 中的键，可配置较小的模型
+        private String modelId = "qwen3";
+        // 未进入摘要的消息达到该数量时触发压缩，不应超过 history.max-messages
+        private int triggerMessages = 16;
+        // 压缩时保留不摘要的最近消息数
+        private int keepRecentMessages = 6;
+        // 摘要的最大生成长度
+        private int maxTokens = 512;
+        // 等待生成摘要的会话数上限，超出时丢弃，下一轮对话会再次触发
+        private int queueCapacity = 100;
+    }
+
+    @Data
+    public static class Coalescing {
+        // 同时到达的相同请求共用一次模型生成，各自保存到自己的会话
+        private boolean enabled = true;
+    }
+}
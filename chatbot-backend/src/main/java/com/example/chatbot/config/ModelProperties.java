@@ -4,6 +4,9 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 @Data
@@ -11,6 +14,9 @@ import java.util.Map;
 @ConfigurationProperties(prefix = "chatbot.model")
 public class ModelProperties {
     private Map<String, ModelOption> options;
+    private Lifecycle lifecycle = new Lifecycle();
+    private Routing routing = new Routing();
+    private Admission admission = new Admission();
 
     @Data
     public static class ModelOption {
@@ -18,5 +24,69 @@ public class ModelProperties {
         private Double temperature;
         private Double topP;
         private Integer topK;
+        // 模型上下文窗口大小（token），同时作为 Ollama 的 num_ctx
+        private Integer contextWindow = 4096;
+        // 为模型回复预留的 token 数，不计入提示词预算
+        private Integer responseReserve = 1024;
+        // 启动时预加载到 Ollama
+        private boolean preload = true;
+        // 提供该模型的 Ollama 地址，为空时使用 spring.ai.ollama.base-url
+        private List<String> endpoints = new ArrayList<>();
+        // 该模型的并发上限和排队上限，为空时使用 chatbot.model.admission 中的默认值
+        private Integer maxConcurrency;
+        private Integer queueCapacity;
+
+        public List<String> endpointsOr(String defaultBaseUrl) {
+            return endpoints == null || endpoints.isEmpty() ? List.of(defaultBaseUrl) : endpoints;
+        }
+    }
+
+    @Data
+    public static class Lifecycle {
+        // 预热、保活和空闲卸载模型；关闭时由 Ollama 按默认的 5 分钟自行卸载
+        private boolean enabled = true;
+        // 每次请求和保活时传给 Ollama 的 keep_alive
+        private Duration keepAlive = Duration.ofMinutes(10);
+        // 超过该时间没有请求的模型被主动卸载，为其他模型腾出显存
+        private Duration idleTimeout = Duration.ofMinutes(30);
+        // 同步加载状态、发送保活和卸载空闲模型的周期
+        private Duration checkInterval = Duration.ofMinutes(1);
+        // 加载模型的最长等待时间
+        private Duration loadTimeout = Duration.ofMinutes(5);
+    }
+
+    public enum Strategy {
+        // 进行中请求最少的节点，相同时选近期延迟低的
+        LEAST_OUTSTANDING,
+        // 近期延迟乘以（进行中请求数 + 1）最小的节点
+        LEAST_LATENCY
+    }
+
+    @Data
+    public static class Routing {
+        private Strategy strategy = Strategy.LEAST_OUTSTANDING;
+        // 主动健康检查周期和单次检查超时
+        private Duration healthCheckInterval = Duration.ofSeconds(10);
+        private Duration healthCheckTimeout = Duration.ofSeconds(2);
+        // 连续失败（请求或健康检查）达到该次数后摘除节点
+        private int failureThreshold = 3;
+        // 摘除后至少等待该时间，再由健康检查成功后重新加入
+        private Duration ejectionTime = Duration.ofSeconds(30);
+    }
+
+    @Data
+    public static class Admission {
+        // 关闭时请求直接发往模型，不限并发也不排队
+        private boolean enabled = true;
+        // 每个模型同时进行的请求数，超出的请求排队
+        private int maxConcurrency = 4;
+        // 每个模型的排队上限，队列满时立即返回 429
+        private int queueCapacity = 32;
+        // 单个用户在同一模型上最多排队的请求数，避免一个用户占满队列
+        private int maxQueuedPerUser = 4;
+        // 排队超过该时间仍未轮到则放弃，返回 429
+        private Duration maxQueueWait = Duration.ofSeconds(30);
+        // 批量请求等待时，每连续放行该数量的交互请求后放行一个批量请求
+        private int interactiveWeight = 4;
     }
 } 
\ No newline at end of file
@@ -0,0 +1,44 @@
+package com.example.chatbot.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "chatbot.rate-limit")
+public class RateLimitProperties {
+    private boolean enabled = true;
+    // 同时跟踪的限流键（路由 + 用户或 IP）上限，超出时淘汰最久未用的
+    private long maxKeys = 100_000;
+    // 限流键空闲超过该时间后移除，应不短于令牌桶从空到满所需的时间
+    private Duration idleTimeout = Duration.ofMinutes(10);
+    // 按顺序匹配，第一个匹配的路由生效，未匹配的请求不限流
+    private List<Route> routes = new ArrayList<>();
+
+    public enum KeyType {
+        // 已登录时按用户，未登录时按 IP
+        USER,
+        IP
+    }
+
+    @Data
+    public static class Route {
+        // Ant 风格的路径模式，如 /ai/chat/**
+        private String pattern;
+        private KeyType key = KeyType.USER;
+        // 每个 period 内允许的请求数，即令牌的补充速度；0 表示该路由不限流，也不再匹配后面的路由
+        private int limit = 60;
+        private Duration period = Duration.ofMinutes(1);
+        // 令牌桶容量，允许的瞬时突发请求数，为空时等于 limit
+        private Integer burst;
+
+        public int burstOrLimit() {
+            return burst != null ? burst : limit;
+        }
+    }
+}
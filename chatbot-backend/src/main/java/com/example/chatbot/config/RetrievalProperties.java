@@ -0,0 +1,58 @@
+package com.example.chatbot.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "chatbot.retrieval")
+public class RetrievalProperties {
+    // keyword: BM25 倒排索引；semantic: 向量检索；hybrid: 两路结果按排名融合
+    private Mode mode = Mode.HYBRID;
+    private int topK = 3;
+    // 低于最高分该比例的结果视为噪声丢弃
+    private double minScoreRatio = 0.2;
+    private Chunk chunk = new Chunk();
+    private Bm25 bm25 = new Bm25();
+    private Embedding embedding = new Embedding();
+    private Hnsw hnsw = new Hnsw();
+
+    public enum Mode {
+        KEYWORD, SEMANTIC, HYBRID
+    }
+
+    @Data
+    public static class Chunk {
+        // 每个段落的最大字符数及相邻段落的重叠字符数
+        private int size = 300;
+        private int overlap = 60;
+        // 两个段落的词项重叠系数达到该值时视为重复，只保留得分较高的一个
+        private double duplicateThreshold = 0.8;
+    }
+
+    @Data
+    public static class Bm25 {
+        private double k1 = 1.2;
+        private double b = 0.75;
+        // 标题中的词项按该倍数计入词频
+        private int titleBoost = 2;
+    }
+
+    @Data
+    public static class Embedding {
+        // ollama: 通过 Ollama 计算向量；local: 本地特征哈希，结果确定，适用于测试
+        private String provider = "ollama";
+        // 仅 local 模式使用
+        private int dimensions = 256;
+    }
+
+    @Data
+    public static class Hnsw {
+        private int m = 16;
+        private int efConstruction = 100;
+        private int efSearch = 64;
+        // 已删除节点超过该比例时重建索引
+        private double compactThreshold = 0.3;
+    }
+}
@@ -1,8 +1,12 @@
 package com.example.chatbot.config;
 
 import com.example.chatbot.security.JwtAuthenticationFilter;
-import com.example.chatbot.security.JwtTokenProvider;
+import com.example.chatbot.security.RateLimitFilter;
+import com.example.chatbot.security.RateLimiter;
+import com.example.chatbot.security.VerifiedTokenCache;
 import com.example.chatbot.service.TokenBlacklistService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -13,7 +17,6 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
@@ -30,19 +33,22 @@ import java.util.List;
 @EnableMethodSecurity
 public class SecurityConfig {
 
-    private final JwtTokenProvider jwtTokenProvider;
-    private final UserDetailsService userDetailsService;
+    private final VerifiedTokenCache verifiedTokenCache;
     private final TokenBlacklistService tokenBlacklistService;
+    private final RateLimiter rateLimiter;
+    private final ObjectMapper objectMapper;
 
     @Value("${cors.allowed-origins}")
     private String allowedOrigins;
 
-    public SecurityConfig(JwtTokenProvider jwtTokenProvider,
-                         UserDetailsService userDetailsService,
-                         TokenBlacklistService tokenBlacklistService) {
-        this.jwtTokenProvider = jwtTokenProvider;
-        this.userDetailsService = userDetailsService;
+    public SecurityConfig(VerifiedTokenCache verifiedTokenCache,
+                         TokenBlacklistService tokenBlacklistService,
+                         RateLimiter rateLimiter,
+                         ObjectMapper objectMapper) {
+        this.verifiedTokenCache = verifiedTokenCache;
         this.tokenBlacklistService = tokenBlacklistService;
+        this.rateLimiter = rateLimiter;
+        this.objectMapper = objectMapper;
     }
 
     @Bean
@@ -52,13 +58,22 @@ public class SecurityConfig {
             .cors(cors -> cors.configurationSource(corsConfigurationSource()))
             .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
             .authorizeHttpRequests(auth -> auth
+                // SSE 结束后的异步分派不带认证信息，拒绝会中断已提交的响应
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                 .requestMatchers("/ai/auth/**").permitAll()
+                // 供负载均衡健康检查，不带用户令牌
+                .requestMatchers("/actuator/health").permitAll()
+                // 指标中包含 Ollama 节点地址、各模型和用户的流量以及队列深度，只对管理员开放
+                .requestMatchers("/actuator/prometheus").hasRole("ADMIN")
                 .requestMatchers("/ai/chat/**").hasAnyRole("ADMIN", "USER", "KNOWLEDGEMANAGER")
                 .requestMatchers("/ai/knowledge/**").hasAnyRole("ADMIN", "KNOWLEDGEMANAGER")
                 .requestMatchers("/ai/users/**").hasRole("ADMIN")
+                .requestMatchers("/ai/monitor/**").hasRole("ADMIN")
                 .anyRequest().authenticated()
             )
-            .addFilterBefore(jwtAuthenticationFilter(), UsernamePasswordAuthenticationFilter.class);
+            .addFilterBefore(jwtAuthenticationFilter(), UsernamePasswordAuthenticationFilter.class)
+            // 认证之后再限流，已登录的请求按用户计数
+            .addFilterAfter(new RateLimitFilter(rateLimiter, objectMapper), JwtAuthenticationFilter.class);
 
         return http.build();
     }
@@ -109,7 +124,7 @@ public class SecurityConfig {
 
     @Bean
     public JwtAuthenticationFilter jwtAuthenticationFilter() {
-        return new JwtAuthenticationFilter(jwtTokenProvider, userDetailsService, tokenBlacklistService);
+        return new JwtAuthenticationFilter(verifiedTokenCache, tokenBlacklistService);
     }
 
     @Bean
@@ -1,13 +1,17 @@
 package com.example.chatbot.controller;
 
+import com.example.chatbot.config.ChatProperties;
 import com.example.chatbot.dto.ChatRequest;
 import com.example.chatbot.dto.ChatResponse;
+import com.example.chatbot.dto.ChatSessionResponse;
+import com.example.chatbot.dto.CursorPageResponse;
 import com.example.chatbot.service.ChatService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -16,6 +20,7 @@ import java.util.List;
 @RequiredArgsConstructor
 public class ChatController {
     private final ChatService chatService;
+    private final ChatProperties chatProperties;
 
     @PostMapping("/send")
     public ResponseEntity<ChatResponse> chat(@RequestBody ChatRequest request) {
@@ -31,25 +36,39 @@ public class ChatController {
         if (request.getModelId() == null) {
             request.setModelId("qwen3");
         }
-        SseEmitter emitter = new SseEmitter();
+        SseEmitter emitter = new SseEmitter(chatProperties.getStream().getTimeout().toMillis());
         chatService.processMessageStream(request.getSessionId(), request.getMessage(), request.getModelId(), emitter);
         return emitter;
     }
 
     @GetMapping("/models")
     public ResponseEntity<List<String>> getAvailableModels() {
-        return ResponseEntity.ok(List.of("qwen3", "deepseekR1"));
+        return ResponseEntity.ok(chatService.getAvailableModels());
     }
 
     @GetMapping("/history/{sessionId}")
-    public ResponseEntity<List<ChatResponse>> getHistory(@PathVariable String sessionId) {
-        List<ChatResponse> history = chatService.getHistory(sessionId);
+    public ResponseEntity<CursorPageResponse<ChatResponse>> getHistory(
+            @PathVariable String sessionId,
+            @RequestParam(required = false) String before,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit) {
+        CursorPageResponse<ChatResponse> history = chatService.getHistory(sessionId, before, after, limit);
         return ResponseEntity.ok(history);
     }
 
+    // 导出整个会话，每行一条消息
+    @GetMapping(value = "/history/{sessionId}/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamHistory(@PathVariable String sessionId) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(chatService.streamHistory(sessionId));
+    }
+
     @GetMapping("/sessions")
-    public ResponseEntity<List<String>> getAllSessions() {
-        List<String> sessions = chatService.getAllSessions();
+    public ResponseEntity<CursorPageResponse<ChatSessionResponse>> getSessions(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        CursorPageResponse<ChatSessionResponse> sessions = chatService.getSessions(cursor, limit);
         return ResponseEntity.ok(sessions);
     }
 
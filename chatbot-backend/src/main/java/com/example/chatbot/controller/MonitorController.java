@@ -0,0 +1,54 @@
+package com.example.chatbot.controller;
+
+import com.example.chatbot.cache.ResponseCache;
+import com.example.chatbot.cache.SessionHistoryCache;
+import com.example.chatbot.dto.AdmissionStatusResponse;
+import com.example.chatbot.dto.CacheStatsResponse;
+import com.example.chatbot.dto.EndpointStatusResponse;
+import com.example.chatbot.dto.ModelStatusResponse;
+import com.example.chatbot.inference.AdmissionController;
+import com.example.chatbot.inference.ModelLifecycleManager;
+import com.example.chatbot.inference.ModelRouter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/ai/monitor")
+@RequiredArgsConstructor
+public class MonitorController {
+    private final ResponseCache responseCache;
+    private final SessionHistoryCache sessionHistoryCache;
+    private final ModelLifecycleManager modelLifecycleManager;
+    private final ModelRouter modelRouter;
+    private final AdmissionController admissionController;
+
+    @GetMapping("/cache")
+    public ResponseEntity<CacheStatsResponse> getCacheStats() {
+        return ResponseEntity.ok(responseCache.stats());
+    }
+
+    @GetMapping("/history-cache")
+    public ResponseEntity<CacheStatsResponse> getHistoryCacheStats() {
+        return ResponseEntity.ok(sessionHistoryCache.stats());
+    }
+
+    @GetMapping("/models")
+    public ResponseEntity<List<ModelStatusResponse>> getModelStatus() {
+        return ResponseEntity.ok(modelLifecycleManager.status());
+    }
+
+    @GetMapping("/admission")
+    public ResponseEntity<List<AdmissionStatusResponse>> getAdmissionStatus() {
+        return ResponseEntity.ok(admissionController.status());
+    }
+
+    @GetMapping("/endpoints")
+    public ResponseEntity<List<EndpointStatusResponse>> getEndpointStatus() {
+        return ResponseEntity.ok(modelRouter.status());
+    }
+}
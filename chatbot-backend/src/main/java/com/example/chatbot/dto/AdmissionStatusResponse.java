@@ -0,0 +1,24 @@
+package com.example.chatbot.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class AdmissionStatusResponse {
+    private String modelId;
+    private int maxConcurrency;
+    private int queueCapacity;
+    // 当前进行中和排队中的请求数
+    private int active;
+    private int queuedInteractive;
+    private int queuedBatch;
+    private long admittedCount;
+    // 需要排队才被放行的请求数
+    private long queuedCount;
+    private long rejectedCount;
+    private long timedOutCount;
+    // 被放行请求的排队耗时（毫秒），未排队的请求计为 0
+    private long averageWaitMillis;
+    private long maxWaitMillis;
+}
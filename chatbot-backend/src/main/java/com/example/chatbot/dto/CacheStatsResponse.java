@@ -0,0 +1,15 @@
+package com.example.chatbot.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class CacheStatsResponse {
+    private long size;
+    private long hitCount;
+    private long missCount;
+    private double hitRate;
+    private long evictionCount;
+    private long invalidationCount;
+}
@@ -3,6 +3,8 @@ package com.example.chatbot.dto;
 import lombok.Data;
 import lombok.Builder;
 
+import java.time.LocalDateTime;
+
 @Data
 @Builder
 public class ChatResponse {
@@ -10,4 +12,5 @@ public class ChatResponse {
     private String sessionId;
     private String role;
     private String modelId;
+    private LocalDateTime createdAt;
 } 
\ No newline at end of file
@@ -0,0 +1,17 @@
+package com.example.chatbot.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+public class ChatSessionResponse {
+    private String sessionId;
+    private String title;
+    private String modelId;
+    private int messageCount;
+    private LocalDateTime createdAt;
+    private LocalDateTime lastActivityAt;
+}
@@ -0,0 +1,14 @@
+package com.example.chatbot.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+// 键集分页结果，nextCursor 为空表示没有更多数据
+@Data
+@Builder
+public class CursorPageResponse<T> {
+    private List<T> items;
+    private String nextCursor;
+}
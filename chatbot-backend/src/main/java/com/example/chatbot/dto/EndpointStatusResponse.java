@@ -0,0 +1,23 @@
+package com.example.chatbot.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.Set;
+
+@Data
+@Builder
+public class EndpointStatusResponse {
+    private String baseUrl;
+    private boolean ejected;
+    private int inFlight;
+    // 近期延迟的指数加权平均（毫秒）
+    private long latencyMillis;
+    private long requestCount;
+    private long failureCount;
+    private long ejectionCount;
+    // 中途取消的流式生成及取消前已生成的 token 数
+    private long cancelledCount;
+    private long wastedTokens;
+    private Set<String> installedModels;
+}
@@ -0,0 +1,23 @@
+package com.example.chatbot.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+@Builder
+public class ModelStatusResponse {
+    private String modelId;
+    private String model;
+    private String endpoint;
+    // COLD / LOADING / WARM
+    private String status;
+    private Instant lastUsedAt;
+    private Instant lastLoadedAt;
+    // 最近一次加载或保活请求的耗时（毫秒）
+    private long lastLoadMillis;
+    private long loadCount;
+    private long coldStarts;
+    private long evictionCount;
+}
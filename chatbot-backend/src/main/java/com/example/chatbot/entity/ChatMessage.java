@@ -6,10 +6,14 @@ import java.time.LocalDateTime;
 
 @Data
 @Entity
-@Table(name = "chat_messages")
+@Table(name = "chat_messages", indexes = {
+        @Index(name = "idx_chat_messages_user_session_time", columnList = "user_id, session_id, created_at")
+})
 public class ChatMessage {
+    // 使用序列并按 50 个一段预分配主键，插入前即可得到 id，从而支持 JDBC 批量插入
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "chat_messages_seq")
+    @SequenceGenerator(name = "chat_messages_seq", sequenceName = "chat_messages_seq", allocationSize = 50)
     private Long id;
 
     @Column(columnDefinition = "TEXT")
@@ -28,8 +32,20 @@ public class ChatMessage {
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
 
+    @Column(name = "model_id")
+    private String modelId;
+
+    // 以下两列只在回答会话首个问题的助手消息上设置，用于近似重复问题的快速回答
+    @Column(name = "knowledge_version")
+    private Long knowledgeVersion;
+
+    @Column(name = "question_fingerprint")
+    private Long questionFingerprint;
+
     @PrePersist
     protected void onCreate() {
-        createdAt = LocalDateTime.now();
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
     }
 } 
\ No newline at end of file
@@ -0,0 +1,54 @@
+package com.example.chatbot.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+// 会话摘要：每个用户会话一行，随消息写入同步更新，会话列表无需扫描全部消息
+@Data
+@Entity
+@Table(name = "chat_sessions", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_chat_sessions_user_session", columnNames = {"user_id", "session_id"})
+}, indexes = {
+        @Index(name = "idx_chat_sessions_user_activity", columnList = "user_id, last_activity_at DESC, id DESC")
+})
+public class ChatSession {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "session_id", nullable = false)
+    private String sessionId;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    // 取会话的第一个问题
+    private String title;
+
+    @Column(name = "model_id")
+    private String modelId;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "last_activity_at", nullable = false)
+    private LocalDateTime lastActivityAt;
+
+    @Column(name = "message_count", nullable = false)
+    private Integer messageCount;
+
+    // 较早消息的滚动摘要，覆盖到 (summaryUntil, summaryUntilId) 为止的 summarizedCount 条消息
+    @Column(columnDefinition = "TEXT")
+    private String summary;
+
+    @Column(name = "summary_until")
+    private LocalDateTime summaryUntil;
+
+    @Column(name = "summary_until_id")
+    private Long summaryUntilId;
+
+    @Column(name = "summarized_count", nullable = false, columnDefinition = "integer default 0")
+    private Integer summarizedCount;
+}
@@ -0,0 +1,34 @@
+package com.example.chatbot.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+@Data
+@Entity
+@Table(name = "knowledge_chunks", indexes = {
+        @Index(name = "idx_knowledge_chunks_knowledge", columnList = "knowledge_id, chunk_index")
+})
+public class KnowledgeChunk {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "knowledge_id", nullable = false)
+    private Long knowledgeId;
+
+    @Column(name = "chunk_index", nullable = false)
+    private Integer chunkIndex;
+
+    @Column(columnDefinition = "TEXT", nullable = false)
+    private String content;
+
+    // 标题和段落内容的 SHA-256，内容未变化时复用已有向量
+    @Column(name = "content_hash", nullable = false, length = 64)
+    private String contentHash;
+
+    // float32 小端序，尚未计算或向量服务不可用时为空
+    private byte[] embedding;
+
+    @Column(name = "embedding_model")
+    private String embeddingModel;
+}
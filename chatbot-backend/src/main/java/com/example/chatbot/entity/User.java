@@ -34,6 +34,10 @@ public class User {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    // 用户名、密码或角色最后变更的时间，此前签发的令牌中的声明不再可信
+    @Column(name = "credentials_changed_at")
+    private LocalDateTime credentialsChangedAt;
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
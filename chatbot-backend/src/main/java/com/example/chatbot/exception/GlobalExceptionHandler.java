@@ -1,5 +1,7 @@
 package com.example.chatbot.exception;
 
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.authentication.BadCredentialsException;
@@ -21,6 +23,17 @@ public class GlobalExceptionHandler {
             .body(ApiResponse.error(ex.getErrorCode()));
     }
 
+    // 限流和排队已满时告知客户端多久之后重试；
+    // 流式接口也可能在建立 SSE 连接前被拒绝，显式指定 JSON 以免按 text/event-stream 协商失败
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<ApiResponse<Void>> handleTooManyRequestsException(TooManyRequestsException ex) {
+        return ResponseEntity
+            .status(ex.getHttpStatus())
+            .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(ApiResponse.error(ex.getErrorCode()));
+    }
+
     @ExceptionHandler(BadCredentialsException.class)
     public ResponseEntity<ApiResponse<Void>> handleBadCredentialsException(BadCredentialsException ex) {
         return ResponseEntity
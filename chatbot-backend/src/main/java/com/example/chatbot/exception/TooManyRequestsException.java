@@ -0,0 +1,14 @@
+package com.example.chatbot.exception;
+
+import lombok.Getter;
+
+// 请求被限流或排队已满，retryAfterSeconds 作为 Retry-After 响应头返回
+@Getter
+public class TooManyRequestsException extends BusinessException {
+    private final long retryAfterSeconds;
+
+    public TooManyRequestsException(ErrorCode errorCode, long retryAfterSeconds) {
+        super(errorCode);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -0,0 +1,355 @@
+package com.example.chatbot.inference;
+
+import com.example.chatbot.config.ModelProperties;
+import com.example.chatbot.dto.AdmissionStatusResponse;
+import com.example.chatbot.exception.ErrorCode;
+import com.example.chatbot.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// 模型请求的准入控制：每个模型限制并发数，超出的请求排队，队列满或排队超时时返回 429。
+// 队列按优先级分为交互和批量两条通道，通道内按用户轮转放行，一个用户的大量请求不会让其他用户一直等待
+@Component
+public class AdmissionController implements MeterBinder {
+
+    public enum Priority { INTERACTIVE, BATCH }
+
+    // 估算 Retry-After 的上下限（秒）
+    private static final long MIN_RETRY_AFTER = 1;
+    private static final long MAX_RETRY_AFTER = 60;
+    // 请求占用时长的指数加权系数
+    private static final double HOLD_WEIGHT = 0.2;
+
+    private final ModelProperties.Admission properties;
+    private final Map<String, ModelQueue> queues = new LinkedHashMap<>();
+
+    public AdmissionController(ModelProperties modelProperties) {
+        this.properties = modelProperties.getAdmission();
+        modelProperties.getOptions().forEach((modelId, option) -> queues.put(modelId, new ModelQueue(modelId,
+                option.getMaxConcurrency() != null ? option.getMaxConcurrency() : properties.getMaxConcurrency(),
+                option.getQueueCapacity() != null ? option.getQueueCapacity() : properties.getQueueCapacity())));
+    }
+
+    // 放行许可，模型调用结束后释放，重复释放无效
+    public static final class Permit implements AutoCloseable {
+        static final Permit NONE = new Permit(null);
+
+        private final ModelQueue queue;
+        private final long grantedAt = System.nanoTime();
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(ModelQueue queue) {
+            this.queue = queue;
+        }
+
+        public void release() {
+            if (queue != null && released.compareAndSet(false, true)) {
+                queue.release(System.nanoTime() - grantedAt);
+            }
+        }
+
+        @Override
+        public void close() {
+            release();
+        }
+    }
+
+    // 同步获取许可，排队期间阻塞当前线程，最多等待 maxQueueWait
+    public Permit acquire(String modelId, Long userId, Priority priority) {
+        if (!properties.isEnabled()) {
+            return Permit.NONE;
+        }
+        ModelQueue queue = queueOf(modelId);
+        Ticket ticket = queue.enqueue(userId, priority);
+        try {
+            return ticket.future.get(properties.getMaxQueueWait().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            return abandon(queue, ticket);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abandon(queue, ticket).release();
+            throw new TooManyRequestsException(ErrorCode.MODEL_BUSY, queue.retryAfterSeconds());
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    // 异步获取许可，排队期间不占用线程；取消订阅时退出队列，已放行的许可随即释放
+    public Mono<Permit> acquireAsync(String modelId, Long userId, Priority priority) {
+        if (!properties.isEnabled()) {
+            return Mono.just(Permit.NONE);
+        }
+        ModelQueue queue = queueOf(modelId);
+        return Mono.<Permit>create(sink -> {
+                    Ticket ticket = queue.enqueue(userId, priority);
+                    sink.onCancel(() -> {
+                        if (!ticket.cancel()) {
+                            ticket.future.join().release();
+                        }
+                    });
+                    ticket.future.thenAccept(sink::success);
+                })
+                .timeout(properties.getMaxQueueWait())
+                .onErrorMap(TimeoutException.class, e -> {
+                    queue.recordTimeout();
+                    return new TooManyRequestsException(ErrorCode.MODEL_BUSY, queue.retryAfterSeconds());
+                });
+    }
+
+    // 不占位的快速检查：请求必须排队且队列已满时立即拒绝，用于在建立 SSE 连接前返回 429
+    public void checkCapacity(String modelId, Long userId) {
+        ModelQueue queue = queues.get(modelId);
+        if (properties.isEnabled() && queue != null) {
+            queue.checkCapacity(userId);
+        }
+    }
+
+    public List<AdmissionStatusResponse> status() {
+        return queues.values().stream()
+                .map(ModelQueue::status)
+                .toList();
+    }
+
+    // 每次抓取时读取队列的状态快照
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (ModelQueue queue : queues.values()) {
+            Tags tags = Tags.of("model", queue.modelId);
+            Gauge.builder("chatbot.admission.active", queue, q -> q.status().getActive())
+                    .tags(tags)
+                    .register(registry);
+            Gauge.builder("chatbot.admission.queued", queue, q -> q.status().getQueuedInteractive())
+                    .tags(tags.and("lane", "interactive"))
+                    .register(registry);
+            Gauge.builder("chatbot.admission.queued", queue, q -> q.status().getQueuedBatch())
+                    .tags(tags.and("lane", "batch"))
+                    .register(registry);
+            FunctionCounter.builder("chatbot.admission.requests", queue, q -> q.status().getAdmittedCount())
+                    .tags(tags.and("result", "admitted"))
+                    .register(registry);
+            FunctionCounter.builder("chatbot.admission.requests", queue, q -> q.status().getRejectedCount())
+                    .tags(tags.and("result", "rejected"))
+                    .register(registry);
+            FunctionCounter.builder("chatbot.admission.requests", queue, q -> q.status().getTimedOutCount())
+                    .tags(tags.and("result", "timed_out"))
+                    .register(registry);
+        }
+    }
+
+    private Permit abandon(ModelQueue queue, Ticket ticket) {
+        if (ticket.cancel()) {
+            queue.recordTimeout();
+            throw new TooManyRequestsException(ErrorCode.MODEL_BUSY, queue.retryAfterSeconds());
+        }
+        // 超时的同时已被放行
+        return ticket.future.join();
+    }
+
+    private ModelQueue queueOf(String modelId) {
+        ModelQueue queue = queues.get(modelId);
+        if (queue == null) {
+            throw new IllegalArgumentException("Invalid model ID: " + modelId);
+        }
+        return queue;
+    }
+
+    private static final class Ticket {
+        final ModelQueue queue;
+        final Long userId;
+        final Priority priority;
+        final long enqueuedAt = System.nanoTime();
+        final CompletableFuture<Permit> future = new CompletableFuture<>();
+        // 仍在队列中，放行或取消后为 false，由所属 ModelQueue 的锁保护
+        boolean waiting = true;
+
+        Ticket(ModelQueue queue, Long userId, Priority priority) {
+            this.queue = queue;
+            this.userId = userId;
+            this.priority = priority;
+        }
+
+        // 返回 true 表示已从队列移除；返回 false 表示已被放行，调用方负责释放许可
+        boolean cancel() {
+            return queue.remove(this);
+        }
+    }
+
+    private final class ModelQueue {
+        final String modelId;
+        final int maxConcurrency;
+        final int queueCapacity;
+        // 每条通道内：用户 id -> 该用户的排队请求，按插入顺序轮转
+        final Map<Priority, LinkedHashMap<Long, ArrayDeque<Ticket>>> lanes = new EnumMap<>(Priority.class);
+        int active;
+        int queued;
+        // 批量请求等待期间连续放行的交互请求数
+        int interactiveStreak;
+        long admittedCount;
+        long queuedCount;
+        long rejectedCount;
+        long timedOutCount;
+        long totalWaitNanos;
+        long maxWaitNanos;
+        double holdMillis;
+
+        ModelQueue(String modelId, int maxConcurrency, int queueCapacity) {
+            this.modelId = modelId;
+            this.maxConcurrency = maxConcurrency;
+            this.queueCapacity = queueCapacity;
+            for (Priority priority : Priority.values()) {
+                lanes.put(priority, new LinkedHashMap<>());
+            }
+        }
+
+        Ticket enqueue(Long userId, Priority priority) {
+            Ticket ticket = new Ticket(this, userId, priority);
+            synchronized (this) {
+                if (active >= maxConcurrency || queued > 0) {
+                    checkCapacity(userId);
+                    lanes.get(priority).computeIfAbsent(userId, id -> new ArrayDeque<>()).addLast(ticket);
+                    queued++;
+                    queuedCount++;
+                    return ticket;
+                }
+                grant(ticket);
+            }
+            ticket.future.complete(new Permit(this));
+            return ticket;
+        }
+
+        synchronized void checkCapacity(Long userId) {
+            if (active < maxConcurrency && queued == 0) {
+                return;
+            }
+            if (queued >= queueCapacity || queuedBy(userId) >= properties.getMaxQueuedPerUser()) {
+                rejectedCount++;
+                throw new TooManyRequestsException(ErrorCode.MODEL_BUSY, retryAfterSeconds());
+            }
+        }
+
+        synchronized boolean remove(Ticket ticket) {
+            if (!ticket.waiting) {
+                return false;
+            }
+            ticket.waiting = false;
+            LinkedHashMap<Long, ArrayDeque<Ticket>> lane = lanes.get(ticket.priority);
+            ArrayDeque<Ticket> tickets = lane.get(ticket.userId);
+            tickets.remove(ticket);
+            if (tickets.isEmpty()) {
+                lane.remove(ticket.userId);
+            }
+            queued--;
+            return true;
+        }
+
+        void release(long heldNanos) {
+            List<Ticket> granted = new ArrayList<>();
+            synchronized (this) {
+                active--;
+                double millis = heldNanos / 1_000_000.0;
+                holdMillis = holdMillis == 0 ? millis : holdMillis + HOLD_WEIGHT * (millis - holdMillis);
+                while (active < maxConcurrency && queued > 0) {
+                    Ticket ticket = next();
+                    grant(ticket);
+                    granted.add(ticket);
+                }
+            }
+            // 在锁外完成，等待方的后续处理（如发起模型请求）不占用队列的锁
+            for (Ticket ticket : granted) {
+                ticket.future.complete(new Permit(this));
+            }
+        }
+
+        synchronized void recordTimeout() {
+            timedOutCount++;
+        }
+
+        // 交互通道优先；批量请求等待时，每 interactiveWeight 个交互请求后放行一个批量请求
+        private Ticket next() {
+            LinkedHashMap<Long, ArrayDeque<Ticket>> interactive = lanes.get(Priority.INTERACTIVE);
+            LinkedHashMap<Long, ArrayDeque<Ticket>> batch = lanes.get(Priority.BATCH);
+            if (!interactive.isEmpty() && (batch.isEmpty() || interactiveStreak < properties.getInteractiveWeight())) {
+                interactiveStreak = batch.isEmpty() ? 0 : interactiveStreak + 1;
+                return poll(interactive);
+            }
+            interactiveStreak = 0;
+            return poll(batch);
+        }
+
+        // 取队首用户的第一个请求，该用户还有请求时移到队尾，实现用户间轮转
+        private Ticket poll(LinkedHashMap<Long, ArrayDeque<Ticket>> lane) {
+            Iterator<Map.Entry<Long, ArrayDeque<Ticket>>> iterator = lane.entrySet().iterator();
+            Map.Entry<Long, ArrayDeque<Ticket>> first = iterator.next();
+            iterator.remove();
+            ArrayDeque<Ticket> tickets = first.getValue();
+            Ticket ticket = tickets.pollFirst();
+            if (!tickets.isEmpty()) {
+                lane.put(first.getKey(), tickets);
+            }
+            queued--;
+            return ticket;
+        }
+
+        // 在锁内计入 active，调用方在锁外完成 future
+        private void grant(Ticket ticket) {
+            ticket.waiting = false;
+            active++;
+            admittedCount++;
+            long waited = System.nanoTime() - ticket.enqueuedAt;
+            totalWaitNanos += waited;
+            maxWaitNanos = Math.max(maxWaitNanos, waited);
+        }
+
+        private int queuedBy(Long userId) {
+            int count = 0;
+            for (LinkedHashMap<Long, ArrayDeque<Ticket>> lane : lanes.values()) {
+                ArrayDeque<Ticket> tickets = lane.get(userId);
+                count += tickets == null ? 0 : tickets.size();
+            }
+            return count;
+        }
+
+        // 按近期平均占用时长估算队列排空所需时间
+        synchronized long retryAfterSeconds() {
+            double millis = holdMillis * (queued + 1) / Math.max(maxConcurrency, 1);
+            long seconds = (long) Math.ceil(millis / 1000);
+            return Math.max(MIN_RETRY_AFTER, Math.min(MAX_RETRY_AFTER, seconds));
+        }
+
+        synchronized AdmissionStatusResponse status() {
+            return AdmissionStatusResponse.builder()
+                    .modelId(modelId)
+                    .maxConcurrency(maxConcurrency)
+                    .queueCapacity(queueCapacity)
+                    .active(active)
+                    .queuedInteractive(lanes.get(Priority.INTERACTIVE).values().stream().mapToInt(ArrayDeque::size).sum())
+                    .queuedBatch(lanes.get(Priority.BATCH).values().stream().mapToInt(ArrayDeque::size).sum())
+                    .admittedCount(admittedCount)
+                    .queuedCount(queuedCount)
+                    .rejectedCount(rejectedCount)
+                    .timedOutCount(timedOutCount)
+                    .averageWaitMillis(admittedCount == 0 ? 0 : Duration.ofNanos(totalWaitNanos / admittedCount).toMillis())
+                    .maxWaitMillis(Duration.ofNanos(maxWaitNanos).toMillis())
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.example.chatbot.inference;
+
+import com.example.chatbot.config.ModelProperties;
+import com.example.chatbot.dto.ModelStatusResponse;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// 模型生命周期：启动时预加载，有流量的模型定期保活，空闲超时的模型主动卸载，
+// 避免首个请求承担加载耗时，也避免 Ollama 在显存不足时随机换出正在使用的模型
+@Component
+public class ModelLifecycleManager {
+    private static final Logger log = LoggerFactory.getLogger(ModelLifecycleManager.class);
+
+    public enum Status { COLD, LOADING, WARM }
+
+    private final OllamaAdminClient adminClient;
+    private final ModelProperties.Lifecycle properties;
+    // 模型 id（chatbot.model.options 的键）@ 节点地址 -> 状态，每个节点上的模型分别管理
+    private final Map<String, ModelState> states = new LinkedHashMap<>();
+    private ScheduledExecutorService scheduler;
+
+    private static final class ModelState {
+        final String modelId;
+        final String model;
+        final String baseUrl;
+        final boolean preload;
+        volatile Status status = Status.COLD;
+        volatile Instant lastUsedAt;
+        volatile Instant lastLoadedAt;
+        volatile long lastLoadMillis;
+        final AtomicLong loadCount = new AtomicLong();
+        final AtomicLong coldStarts = new AtomicLong();
+        final AtomicLong evictionCount = new AtomicLong();
+
+        ModelState(String modelId, ModelProperties.ModelOption option, String baseUrl) {
+            this.modelId = modelId;
+            this.model = option.getModel();
+            this.baseUrl = baseUrl;
+            this.preload = option.isPreload();
+        }
+    }
+
+    public ModelLifecycleManager(OllamaAdminClient adminClient, ModelProperties modelProperties,
+                                 @Value("${spring.ai.ollama.base-url:http://localhost:11434}") String defaultBaseUrl) {
+        this.adminClient = adminClient;
+        this.properties = modelProperties.getLifecycle();
+        modelProperties.getOptions().forEach((modelId, option) -> {
+            for (String baseUrl : option.endpointsOr(defaultBaseUrl)) {
+                states.put(keyOf(modelId, baseUrl), new ModelState(modelId, option, baseUrl));
+            }
+        });
+    }
+
+    // 预加载放在后台执行，Ollama 不可用时不影响应用启动
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("model-lifecycle-"));
+        scheduler.execute(this::preload);
+        long interval = properties.getCheckInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::maintainSafely, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    public void preload() {
+        Instant now = Instant.now();
+        for (ModelState state : states.values()) {
+            if (state.preload) {
+                // 预加载视为一次使用，空闲超时后仍无请求再卸载
+                state.lastUsedAt = now;
+                load(state);
+            }
+        }
+    }
+
+    // 请求路由到节点后记录使用；模型未加载时本次请求会承担加载耗时，计为一次冷启动
+    public void recordUse(String modelId, String baseUrl) {
+        ModelState state = states.get(keyOf(modelId, baseUrl));
+        if (state == null) {
+            return;
+        }
+        state.lastUsedAt = Instant.now();
+        if (state.status == Status.COLD) {
+            state.coldStarts.incrementAndGet();
+            log.info("Model {} on {} is cold, request will wait for it to load", state.model, state.baseUrl);
+        }
+        // 请求本身会让 Ollama 加载模型并刷新驻留时间
+        state.status = Status.WARM;
+        state.lastLoadedAt = state.lastUsedAt;
+    }
+
+    // 同步 Ollama 中的加载状态，保活近期有请求的模型，卸载空闲模型
+    public void maintain() {
+        Map<String, Set<String>> runningByEndpoint = new HashMap<>();
+        Instant now = Instant.now();
+        Duration refreshAfter = properties.getKeepAlive().dividedBy(2);
+        for (ModelState state : states.values()) {
+            if (!runningByEndpoint.containsKey(state.baseUrl)) {
+                runningByEndpoint.put(state.baseUrl, runningModels(state.baseUrl));
+            }
+            Set<String> running = runningByEndpoint.get(state.baseUrl);
+            if (running == null) {
+                // 节点不可达，由路由的健康检查处理
+                continue;
+            }
+            boolean loaded = running.contains(OllamaAdminClient.normalize(state.model));
+            if (!loaded && state.status == Status.WARM) {
+                // 被 Ollama 换出或服务重启
+                state.status = Status.COLD;
+            }
+            boolean active = state.lastUsedAt != null
+                    && Duration.between(state.lastUsedAt, now).compareTo(properties.getIdleTimeout()) < 0;
+            if (active) {
+                if (!loaded || state.lastLoadedAt == null
+                        || Duration.between(state.lastLoadedAt, now).compareTo(refreshAfter) >= 0) {
+                    load(state);
+                }
+            } else if (loaded) {
+                unload(state);
+            }
+        }
+    }
+
+    public List<ModelStatusResponse> status() {
+        return states.values().stream()
+                .map(state -> ModelStatusResponse.builder()
+                        .modelId(state.modelId)
+                        .model(state.model)
+                        .endpoint(state.baseUrl)
+                        .status(state.status.name())
+                        .lastUsedAt(state.lastUsedAt)
+                        .lastLoadedAt(state.lastLoadedAt)
+                        .lastLoadMillis(state.lastLoadMillis)
+                        .loadCount(state.loadCount.get())
+                        .coldStarts(state.coldStarts.get())
+                        .evictionCount(state.evictionCount.get())
+                        .build())
+                .toList();
+    }
+
+    private void load(ModelState state) {
+        Status previous = state.status;
+        if (previous == Status.COLD) {
+            state.status = Status.LOADING;
+        }
+        try {
+            long millis = adminClient.load(state.baseUrl, state.model, properties.getKeepAlive());
+            state.lastLoadMillis = millis;
+            state.lastLoadedAt = Instant.now();
+            state.loadCount.incrementAndGet();
+            state.status = Status.WARM;
+            if (previous != Status.WARM) {
+                log.info("Model {} loaded on {} in {} ms", state.model, state.baseUrl, millis);
+            }
+        } catch (RuntimeException e) {
+            state.status = previous == Status.WARM ? Status.WARM : Status.COLD;
+            log.warn("Failed to load model {} on {}: {}", state.model, state.baseUrl, e.getMessage());
+        }
+    }
+
+    private void unload(ModelState state) {
+        try {
+            adminClient.unload(state.baseUrl, state.model);
+            state.status = Status.COLD;
+            state.evictionCount.incrementAndGet();
+            log.info("Model {} unloaded from {} after {} idle", state.model, state.baseUrl, properties.getIdleTimeout());
+        } catch (RuntimeException e) {
+            log.warn("Failed to unload model {} from {}: {}", state.model, state.baseUrl, e.getMessage());
+        }
+    }
+
+    private void maintainSafely() {
+        try {
+            maintain();
+        } catch (RuntimeException e) {
+            log.warn("Model lifecycle check failed: {}", e.getMessage());
+        }
+    }
+
+    private Set<String> runningModels(String baseUrl) {
+        try {
+            return adminClient.runningModels(baseUrl);
+        } catch (RuntimeException e) {
+            log.debug("Failed to list running models on {}: {}", baseUrl, e.getMessage());
+            return null;
+        }
+    }
+
+    private static String keyOf(String modelId, String baseUrl) {
+        return modelId + "@" + baseUrl;
+    }
+}
@@ -0,0 +1,237 @@
+package com.example.chatbot.inference;
+
+import com.example.chatbot.config.AiConfig;
+import com.example.chatbot.config.ModelProperties;
+import com.example.chatbot.dto.EndpointStatusResponse;
+import com.example.chatbot.exception.BusinessException;
+import com.example.chatbot.exception.ErrorCode;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.ollama.OllamaChatModel;
+import org.springframework.ai.ollama.api.OllamaApi;
+import org.springframework.ai.ollama.api.OllamaOptions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.SignalType;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+// 把模型请求分配到提供该模型的 Ollama 节点：按进行中请求数或近期延迟选择节点，
+// 连续失败的节点被摘除，等待一段时间后由主动健康检查确认恢复再重新加入
+@Component
+public class ModelRouter implements MeterBinder {
+    private static final Logger log = LoggerFactory.getLogger(ModelRouter.class);
+
+    private final ModelProperties modelProperties;
+    private final ModelProperties.Routing properties;
+    private final OllamaAdminClient adminClient;
+    private final ModelLifecycleManager modelLifecycleManager;
+    // 节点地址 -> 节点，多个模型共用同一节点时共享状态
+    private final Map<String, OllamaEndpoint> endpoints = new LinkedHashMap<>();
+    // 模型 id -> 提供该模型的节点，顺序与配置一致
+    private final Map<String, List<OllamaEndpoint>> endpointsByModel = new LinkedHashMap<>();
+    private ScheduledExecutorService scheduler;
+
+    public ModelRouter(ModelProperties modelProperties, OllamaAdminClient adminClient,
+                       ModelLifecycleManager modelLifecycleManager, OllamaChatModel defaultChatModel,
+                       AiConfig.ChatClientFactory chatClientFactory,
+                       @Value("${spring.ai.ollama.base-url:http://localhost:11434}") String defaultBaseUrl) {
+        this.modelProperties = modelProperties;
+        this.properties = modelProperties.getRouting();
+        this.adminClient = adminClient;
+        this.modelLifecycleManager = modelLifecycleManager;
+        modelProperties.getOptions().forEach((modelId, option) -> {
+            List<OllamaEndpoint> modelEndpoints = new ArrayList<>();
+            for (String baseUrl : option.endpointsOr(defaultBaseUrl)) {
+                modelEndpoints.add(endpoints.computeIfAbsent(baseUrl, url -> new OllamaEndpoint(url,
+                        chatClientFactory.create(url.equals(defaultBaseUrl)
+                                ? defaultChatModel
+                                : chatModelFor(url, defaultChatModel)))));
+            }
+            endpointsByModel.put(modelId, modelEndpoints);
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("model-health-"));
+        long interval = properties.getHealthCheckInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::checkHealth, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    // 同步调用：选择节点、记录进行中请求和耗时，失败计入节点的连续失败次数
+    public <T> T call(String modelId, Function<ChatClient, T> request) {
+        OllamaEndpoint endpoint = select(modelId);
+        endpoint.acquire();
+        long start = System.nanoTime();
+        try {
+            T result = request.apply(endpoint.chatClient());
+            endpoint.recordLatency(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            endpoint.recordSuccess();
+            return result;
+        } catch (RuntimeException e) {
+            recordFailure(endpoint, e);
+            throw e;
+        } finally {
+            endpoint.release();
+        }
+    }
+
+    // 流式调用：订阅时选择节点，以首个片段的到达时间作为延迟，流结束或取消时释放。
+    // 取消订阅会关闭到 Ollama 的连接，Ollama 随即停止生成；取消前已生成的片段计为浪费的 token
+    public <T> Flux<T> stream(String modelId, Function<ChatClient, Flux<T>> request) {
+        return Flux.defer(() -> {
+            OllamaEndpoint endpoint = select(modelId);
+            endpoint.acquire();
+            long start = System.nanoTime();
+            AtomicLong received = new AtomicLong();
+            return request.apply(endpoint.chatClient())
+                    .doOnNext(item -> {
+                        if (received.getAndIncrement() == 0) {
+                            endpoint.recordLatency(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                        }
+                    })
+                    .doOnError(e -> recordFailure(endpoint, e))
+                    .doFinally(signal -> {
+                        if (signal == SignalType.ON_COMPLETE) {
+                            endpoint.recordSuccess();
+                        } else if (signal == SignalType.CANCEL) {
+                            // Ollama 每个片段约为一个 token
+                            endpoint.recordCancelled(received.get());
+                        }
+                        endpoint.release();
+                    });
+        });
+    }
+
+    // 当前至少有一个可用节点的模型
+    public List<String> availableModels() {
+        List<String> available = new ArrayList<>();
+        endpointsByModel.forEach((modelId, modelEndpoints) -> {
+            String model = modelProperties.getOptions().get(modelId).getModel();
+            if (modelEndpoints.stream().anyMatch(endpoint -> !endpoint.isEjected() && endpoint.serves(model))) {
+                available.add(modelId);
+            }
+        });
+        return available;
+    }
+
+    public List<EndpointStatusResponse> status() {
+        return endpoints.values().stream()
+                .map(endpoint -> EndpointStatusResponse.builder()
+                        .baseUrl(endpoint.baseUrl())
+                        .ejected(endpoint.isEjected())
+                        .inFlight(endpoint.inFlight())
+                        .latencyMillis(Math.round(endpoint.latencyMillis()))
+                        .requestCount(endpoint.requestCount())
+                        .failureCount(endpoint.failureCount())
+                        .ejectionCount(endpoint.ejectionCount())
+                        .cancelledCount(endpoint.cancelledCount())
+                        .wastedTokens(endpoint.wastedTokens())
+                        .installedModels(endpoint.installedModels())
+                        .build())
+                .toList();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (OllamaEndpoint endpoint : endpoints.values()) {
+            Tags tags = Tags.of("endpoint", endpoint.baseUrl());
+            Gauge.builder("chatbot.endpoint.inflight", endpoint, OllamaEndpoint::inFlight)
+                    .tags(tags)
+                    .register(registry);
+            Gauge.builder("chatbot.endpoint.ejected", endpoint, e -> e.isEjected() ? 1 : 0)
+                    .tags(tags)
+                    .register(registry);
+            FunctionCounter.builder("chatbot.endpoint.requests", endpoint, OllamaEndpoint::requestCount)
+                    .tags(tags)
+                    .register(registry);
+            FunctionCounter.builder("chatbot.endpoint.failures", endpoint, OllamaEndpoint::failureCount)
+                    .tags(tags)
+                    .register(registry);
+            FunctionCounter.builder("chatbot.endpoint.cancelled", endpoint, OllamaEndpoint::cancelledCount)
+                    .description("Streams cancelled before the model finished")
+                    .tags(tags)
+                    .register(registry);
+            FunctionCounter.builder("chatbot.endpoint.wasted.tokens", endpoint, OllamaEndpoint::wastedTokens)
+                    .description("Tokens generated for streams that were cancelled")
+                    .tags(tags)
+                    .register(registry);
+        }
+    }
+
+    // 主动健康检查：成功时更新已安装模型并恢复摘除时间已过的节点，失败计入连续失败次数
+    public void checkHealth() {
+        for (OllamaEndpoint endpoint : endpoints.values()) {
+            try {
+                Set<String> installed = adminClient.installedModels(endpoint.baseUrl());
+                if (endpoint.recordHealthy(installed)) {
+                    log.info("Ollama endpoint {} is healthy again, re-admitted", endpoint.baseUrl());
+                }
+            } catch (RuntimeException e) {
+                recordFailure(endpoint, e);
+            }
+        }
+    }
+
+    OllamaEndpoint select(String modelId) {
+        List<OllamaEndpoint> candidates = endpointsByModel.get(modelId);
+        if (candidates == null) {
+            throw new IllegalArgumentException("Invalid model ID: " + modelId);
+        }
+        String model = modelProperties.getOptions().get(modelId).getModel();
+        Comparator<OllamaEndpoint> order = properties.getStrategy() == ModelProperties.Strategy.LEAST_LATENCY
+                ? Comparator.comparingDouble(endpoint -> endpoint.latencyMillis() * (endpoint.inFlight() + 1))
+                : Comparator.<OllamaEndpoint>comparingInt(OllamaEndpoint::inFlight)
+                        .thenComparingDouble(OllamaEndpoint::latencyMillis);
+        OllamaEndpoint selected = candidates.stream()
+                .filter(endpoint -> !endpoint.isEjected() && endpoint.serves(model))
+                .min(order)
+                .orElseThrow(() -> new BusinessException(ErrorCode.MODEL_UNAVAILABLE));
+        modelLifecycleManager.recordUse(modelId, selected.baseUrl());
+        return selected;
+    }
+
+    private void recordFailure(OllamaEndpoint endpoint, Throwable e) {
+        if (endpoint.recordFailure(properties.getFailureThreshold(), properties.getEjectionTime())) {
+            log.warn("Ollama endpoint {} ejected after {} consecutive failures: {}",
+                    endpoint.baseUrl(), properties.getFailureThreshold(), e.getMessage());
+        }
+    }
+
+    // 其他节点复用默认模型的配置，只替换地址
+    private static OllamaChatModel chatModelFor(String baseUrl, OllamaChatModel defaultChatModel) {
+        return OllamaChatModel.builder()
+                .ollamaApi(OllamaApi.builder().baseUrl(baseUrl).build())
+                .defaultOptions((OllamaOptions) defaultChatModel.getDefaultOptions())
+                .build();
+    }
+}
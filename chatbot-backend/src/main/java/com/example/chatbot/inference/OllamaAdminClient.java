@@ -0,0 +1,100 @@
+package com.example.chatbot.inference;
+
+import com.example.chatbot.config.ModelProperties;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Ollama 模型管理接口：加载、保活、卸载、查询已加载和已安装的模型。Spring AI 的 OllamaApi 未提供这些接口
+@Component
+public class OllamaAdminClient {
+    private final RestClient restClient;
+    // 健康检查使用较短的超时
+    private final RestClient healthRestClient;
+
+    // /api/ps 和 /api/tags 的响应结构相同
+    private record ModelList(List<ModelEntry> models) {
+    }
+
+    private record ModelEntry(String name, String model) {
+    }
+
+    public OllamaAdminClient(RestClient.Builder restClientBuilder, ModelProperties modelProperties) {
+        this.restClient = restClientBuilder.clone()
+                .requestFactory(requestFactory(Duration.ofSeconds(5), modelProperties.getLifecycle().getLoadTimeout()))
+                .build();
+        Duration healthTimeout = modelProperties.getRouting().getHealthCheckTimeout();
+        this.healthRestClient = restClientBuilder.clone()
+                .requestFactory(requestFactory(healthTimeout, healthTimeout))
+                .build();
+    }
+
+    // 不带提示词的生成请求只加载模型并按 keepAlive 刷新驻留时间，返回耗时（毫秒）
+    public long load(String baseUrl, String model, Duration keepAlive) {
+        long start = System.nanoTime();
+        generate(baseUrl, Map.of("model", model, "keep_alive", keepAliveOf(keepAlive)));
+        return Duration.ofNanos(System.nanoTime() - start).toMillis();
+    }
+
+    public void unload(String baseUrl, String model) {
+        generate(baseUrl, Map.of("model", model, "keep_alive", 0));
+    }
+
+    // 当前驻留在显存中的模型名
+    public Set<String> runningModels(String baseUrl) {
+        return namesOf(healthRestClient.get()
+                .uri(baseUrl + "/api/ps")
+                .retrieve()
+                .body(ModelList.class));
+    }
+
+    // 节点上已安装的模型名，同时用作健康检查
+    public Set<String> installedModels(String baseUrl) {
+        return namesOf(healthRestClient.get()
+                .uri(baseUrl + "/api/tags")
+                .retrieve()
+                .body(ModelList.class));
+    }
+
+    // Ollama 对未写标签的模型名补上 :latest
+    public static String normalize(String model) {
+        return model.contains(":") ? model : model + ":latest";
+    }
+
+    public static String keepAliveOf(Duration keepAlive) {
+        return keepAlive.toSeconds() + "s";
+    }
+
+    private static Set<String> namesOf(ModelList response) {
+        Set<String> names = new HashSet<>();
+        if (response != null && response.models() != null) {
+            for (ModelEntry entry : response.models()) {
+                names.add(entry.model() != null ? entry.model() : entry.name());
+            }
+        }
+        return names;
+    }
+
+    private static SimpleClientHttpRequestFactory requestFactory(Duration connectTimeout, Duration readTimeout) {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(connectTimeout);
+        requestFactory.setReadTimeout(readTimeout);
+        return requestFactory;
+    }
+
+    private void generate(String baseUrl, Map<String, Object> body) {
+        restClient.post()
+                .uri(baseUrl + "/api/generate")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body)
+                .retrieve()
+                .toBodilessEntity();
+    }
+}
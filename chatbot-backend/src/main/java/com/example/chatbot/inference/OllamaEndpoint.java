@@ -0,0 +1,132 @@
+package com.example.chatbot.inference;
+
+import org.springframework.ai.chat.client.ChatClient;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// 一个 Ollama 节点的路由状态：进行中的请求数、近期延迟、连续失败次数和摘除状态
+public class OllamaEndpoint {
+    // 近期延迟的指数加权系数
+    private static final double LATENCY_WEIGHT = 0.2;
+
+    private final String baseUrl;
+    private final ChatClient chatClient;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong failureCount = new AtomicLong();
+    private final AtomicLong ejectionCount = new AtomicLong();
+    private final AtomicLong cancelledCount = new AtomicLong();
+    private final AtomicLong wastedTokens = new AtomicLong();
+    private volatile double latencyMillis;
+    // 非空表示已被摘除，在此时间之前不参与路由
+    private volatile Instant ejectedUntil;
+    // 健康检查得到的已安装模型，尚未检查时为 null
+    private volatile Set<String> installedModels;
+
+    public OllamaEndpoint(String baseUrl, ChatClient chatClient) {
+        this.baseUrl = baseUrl;
+        this.chatClient = chatClient;
+    }
+
+    public String baseUrl() {
+        return baseUrl;
+    }
+
+    ChatClient chatClient() {
+        return chatClient;
+    }
+
+    public boolean isEjected() {
+        return ejectedUntil != null;
+    }
+
+    // 尚未做过健康检查时认为已安装，避免启动阶段无节点可用
+    boolean serves(String model) {
+        Set<String> installed = installedModels;
+        return installed == null || installed.contains(OllamaAdminClient.normalize(model));
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+
+    double latencyMillis() {
+        return latencyMillis;
+    }
+
+    void acquire() {
+        inFlight.incrementAndGet();
+        requestCount.incrementAndGet();
+    }
+
+    void release() {
+        inFlight.decrementAndGet();
+    }
+
+    void recordLatency(long millis) {
+        double previous = latencyMillis;
+        latencyMillis = previous == 0 ? millis : previous + LATENCY_WEIGHT * (millis - previous);
+    }
+
+    void recordSuccess() {
+        consecutiveFailures.set(0);
+    }
+
+    // 客户端断开等原因中途取消的生成，tokens 为取消前已生成的数量
+    void recordCancelled(long tokens) {
+        cancelledCount.incrementAndGet();
+        wastedTokens.addAndGet(tokens);
+    }
+
+    // 返回 true 表示本次失败导致节点被摘除
+    boolean recordFailure(int threshold, Duration ejectionTime) {
+        failureCount.incrementAndGet();
+        if (consecutiveFailures.incrementAndGet() >= threshold && ejectedUntil == null) {
+            ejectedUntil = Instant.now().plus(ejectionTime);
+            ejectionCount.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    // 健康检查成功：更新已安装模型，摘除时间已过的节点重新加入
+    boolean recordHealthy(Set<String> models) {
+        installedModels = models;
+        consecutiveFailures.set(0);
+        Instant until = ejectedUntil;
+        if (until != null && !Instant.now().isBefore(until)) {
+            ejectedUntil = null;
+            return true;
+        }
+        return false;
+    }
+
+    long requestCount() {
+        return requestCount.get();
+    }
+
+    long failureCount() {
+        return failureCount.get();
+    }
+
+    long ejectionCount() {
+        return ejectionCount.get();
+    }
+
+    long cancelledCount() {
+        return cancelledCount.get();
+    }
+
+    long wastedTokens() {
+        return wastedTokens.get();
+    }
+
+    Set<String> installedModels() {
+        return installedModels;
+    }
+}
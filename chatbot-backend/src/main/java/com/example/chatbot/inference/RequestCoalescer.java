@@ -0,0 +1,157 @@
+package com.example.chatbot.inference;
+
+import com.example.chatbot.config.ChatProperties;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.SignalType;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// 相同请求的合并（single-flight）：同一时刻提示词和模型参数完全相同的请求只向模型发起一次生成，
+// 同步请求等待并共享结果，流式请求共享同一个片段流，后加入的订阅者会先收到已生成的片段
+@Component
+public class RequestCoalescer implements MeterBinder {
+    private static final Logger log = LoggerFactory.getLogger(RequestCoalescer.class);
+
+    private final ChatProperties.Coalescing properties;
+    private final Map<Object, CompletableFuture<Object>> calls = new ConcurrentHashMap<>();
+    private final Map<Object, Flight> streams = new ConcurrentHashMap<>();
+    private final AtomicLong generations = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    public RequestCoalescer(ChatProperties chatProperties) {
+        this.properties = chatProperties.getCoalescing();
+    }
+
+    // 同步生成：第一个请求在当前线程生成，其余相同请求等待其结果，失败时一起失败
+    @SuppressWarnings("unchecked")
+    public <T> T call(Object key, Supplier<T> generation) {
+        if (!properties.isEnabled()) {
+            return generation.get();
+        }
+        CompletableFuture<Object> created = new CompletableFuture<>();
+        CompletableFuture<Object> existing = calls.putIfAbsent(key, created);
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            log.debug("Joined in-flight generation");
+            try {
+                return (T) existing.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        generations.incrementAndGet();
+        try {
+            T result = generation.get();
+            created.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            created.completeExceptionally(e);
+            throw e;
+        } finally {
+            calls.remove(key, created);
+        }
+    }
+
+    // 流式生成：返回的 Flux 必须被订阅。所有订阅者都取消后上游生成随之取消
+    public Flux<String> stream(Object key, Supplier<Flux<String>> generation) {
+        if (!properties.isEnabled()) {
+            return Flux.defer(generation);
+        }
+        AtomicBoolean leader = new AtomicBoolean();
+        Flight flight = streams.compute(key, (k, existing) -> {
+            if (existing != null && existing.join()) {
+                return existing;
+            }
+            leader.set(true);
+            return new Flight(k, generation);
+        });
+        if (leader.get()) {
+            generations.incrementAndGet();
+        } else {
+            coalesced.incrementAndGet();
+            log.debug("Joined in-flight stream");
+        }
+        return flight.subscriber();
+    }
+
+    public long generationCount() {
+        return generations.get();
+    }
+
+    // 加入已有生成、未单独调用模型的请求数
+    public long coalescedCount() {
+        return coalesced.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("chatbot.coalescer.generations", generations, AtomicLong::get)
+                .description("Generations started by coalescing leaders")
+                .register(registry);
+        FunctionCounter.builder("chatbot.coalescer.coalesced", coalesced, AtomicLong::get)
+                .description("Requests that joined an in-flight generation")
+                .register(registry);
+        Gauge.builder("chatbot.coalescer.streams.inflight", streams, Map::size)
+                .description("Shared streaming generations in flight")
+                .register(registry);
+    }
+
+    private final class Flight {
+        final Object key;
+        final Flux<String> shared;
+        // 已加入且尚未结束的订阅者，降为 0 后不再接受新的加入
+        final AtomicInteger subscribers = new AtomicInteger(1);
+        volatile Disposable connection;
+
+        Flight(Object key, Supplier<Flux<String>> generation) {
+            this.key = key;
+            // 缓存全部片段，生成结束后加入的订阅者也能拿到完整回答，不会再次触发生成
+            this.shared = Flux.defer(generation)
+                    .doFinally(signal -> streams.remove(key, this))
+                    .replay()
+                    .autoConnect(1, disposable -> connection = disposable);
+        }
+
+        boolean join() {
+            while (true) {
+                int current = subscribers.get();
+                if (current == 0) {
+                    return false;
+                }
+                if (subscribers.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        Flux<String> subscriber() {
+            return shared.doFinally(this::leave);
+        }
+
+        // 只有最后一个订阅者取消时才取消生成；正常结束时上游已完成，此时取消会被上游误记为中途取消
+        private void leave(SignalType signal) {
+            if (subscribers.decrementAndGet() == 0) {
+                streams.remove(key, this);
+                Disposable current = connection;
+                if (current != null && signal == SignalType.CANCEL) {
+                    current.dispose();
+                }
+            }
+        }
+    }
+}
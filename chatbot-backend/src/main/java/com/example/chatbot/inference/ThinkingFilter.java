@@ -0,0 +1,120 @@
+package com.example.chatbot.inference;
+
+// 流式输出中 <think>...</think> 思考过程的增量过滤：逐个片段识别标签，标签可以被拆分在相邻片段中。
+// 思考内容和回答分别交给 Listener，回答片段不等待整段输出即可转发。
+// 非线程安全，每个流使用一个实例；不含标签的片段原样传递，不产生新的字符串
+public final class ThinkingFilter {
+    private static final String OPEN = "<think>";
+    private static final String CLOSE = "</think>";
+
+    public interface Listener {
+        void onAnswer(String text);
+
+        void onReasoning(String text);
+    }
+
+    private final Listener listener;
+    private boolean thinking;
+    // 当前标签已匹配的字符数，其中 carried 个来自之前的片段且尚未交给 Listener
+    private int matched;
+    private int carried;
+    // 回答开头的空白（通常是 </think> 后的换行）不转发
+    private boolean answerStarted;
+
+    public ThinkingFilter(Listener listener) {
+        this.listener = listener;
+    }
+
+    // 非流式调用拿到的完整输出：去掉思考过程，只返回回答部分
+    public static String strip(String text) {
+        StringBuilder answer = new StringBuilder(text.length());
+        ThinkingFilter filter = new ThinkingFilter(new Listener() {
+            @Override
+            public void onAnswer(String text) {
+                answer.append(text);
+            }
+
+            @Override
+            public void onReasoning(String text) {
+            }
+        });
+        filter.accept(text);
+        filter.finish();
+        return answer.toString().stripTrailing();
+    }
+
+    public boolean isThinking() {
+        return thinking;
+    }
+
+    public void accept(String chunk) {
+        int length = chunk.length();
+        if (matched == 0 && chunk.indexOf('<') < 0) {
+            emit(chunk);
+            return;
+        }
+        // segment 为本片段中尚未交出的文本起点
+        int segment = 0;
+        int i = 0;
+        while (i < length) {
+            String tag = thinking ? CLOSE : OPEN;
+            if (chunk.charAt(i) == tag.charAt(matched)) {
+                matched++;
+                i++;
+                if (matched == tag.length()) {
+                    int tagStart = i - (tag.length() - carried);
+                    if (tagStart > segment) {
+                        emit(chunk.substring(segment, tagStart));
+                    }
+                    thinking = !thinking;
+                    matched = 0;
+                    carried = 0;
+                    segment = i;
+                }
+            } else if (matched > 0) {
+                // 不是标签：之前片段中匹配的部分按普通文本交出，当前字符重新匹配
+                if (carried > 0) {
+                    emit(tag.substring(0, carried));
+                    carried = 0;
+                }
+                matched = 0;
+            } else {
+                i++;
+            }
+        }
+        // 片段末尾可能是标签的开头，留到下一个片段再判断
+        int tail = length - (matched - carried);
+        if (tail > segment) {
+            emit(chunk.substring(segment, tail));
+        }
+        carried = matched;
+    }
+
+    // 流结束时交出末尾未完成的标签片段
+    public void finish() {
+        if (carried > 0) {
+            emit((thinking ? CLOSE : OPEN).substring(0, carried));
+        }
+        matched = 0;
+        carried = 0;
+    }
+
+    private void emit(String text) {
+        if (thinking) {
+            listener.onReasoning(text);
+            return;
+        }
+        if (!answerStarted) {
+            int start = 0;
+            while (start < text.length() && Character.isWhitespace(text.charAt(start))) {
+                start++;
+            }
+            if (start == text.length()) {
+                return;
+            }
+            answerStarted = true;
+            text = text.substring(start);
+        }
+        listener.onAnswer(text);
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.chatbot.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// 对话链路的分阶段指标：各阶段耗时、首个片段延迟、生成速度、提示词大小、检索段落数和回答缓存命中情况，
+// 按模型区分，耗时类指标带直方图，可在 Prometheus 中计算 p99
+@Component
+public class ChatMetrics {
+
+    // 对话链路的阶段
+    public enum Stage {
+        USER, RETRIEVAL, HISTORY, CACHE, PROMPT, MODEL, CLEANUP, PERSIST;
+
+        final String tag = name().toLowerCase();
+    }
+
+    // 回答缓存的查找结果：完全相同的问题、近似问题或未命中
+    public enum CacheResult {
+        EXACT, SIMILAR, MISS;
+
+        final String tag = name().toLowerCase();
+    }
+
+    private static final Duration MIN_EXPECTED = Duration.ofMillis(1);
+    private static final Duration MAX_EXPECTED = Duration.ofMinutes(5);
+
+    private final MeterRegistry registry;
+    private final AtomicInteger activeStreams = new AtomicInteger();
+    // 按标签缓存的计量器，避免每次记录都在注册表中查找
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> summaries = new ConcurrentHashMap<>();
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    public ChatMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        registry.gauge("chatbot.chat.streams.active", activeStreams);
+    }
+
+    // 记录从 startNanos 到现在的阶段耗时，返回当前时间便于衔接下一阶段
+    public long recordStage(Stage stage, String modelId, long startNanos) {
+        long now = System.nanoTime();
+        timer("chatbot.chat.stage", "Time spent in each stage of a chat request",
+                Tags.of("stage", stage.tag, "model", modelId)).record(now - startNanos, TimeUnit.NANOSECONDS);
+        return now;
+    }
+
+    // 整个请求的耗时，mode 为 sync 或 stream，cached 表示回答来自缓存
+    public void recordRequest(String modelId, String mode, boolean cached, long startNanos) {
+        timer("chatbot.chat.request", "End-to-end time of a chat request",
+                Tags.of("model", modelId, "mode", mode, "cached", String.valueOf(cached)))
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordRetrieval(int passages) {
+        summary("chatbot.retrieval.passages", "Passages retrieved for a question", Tags.empty(), 100)
+                .record(passages);
+    }
+
+    public void recordPrompt(String modelId, int estimatedTokens) {
+        summary("chatbot.chat.prompt.tokens", "Estimated tokens of the assembled prompt", Tags.of("model", modelId),
+                128 * 1024).record(estimatedTokens);
+    }
+
+    public void recordCacheLookup(CacheResult result) {
+        counters.computeIfAbsent("cache|" + result.tag, key -> Counter.builder("chatbot.chat.cache.lookups")
+                        .description("Response cache lookups by result")
+                        .tag("result", result.tag)
+                        .register(registry))
+                .increment();
+    }
+
+    // 一次生成的输出 token 数和速度，elapsedNanos 为从首个 token 到最后一个 token 的时间
+    public void recordGeneration(String modelId, long tokens, long elapsedNanos) {
+        counters.computeIfAbsent("tokens|" + modelId, key -> Counter.builder("chatbot.chat.completion.tokens")
+                        .description("Tokens generated by the model")
+                        .tag("model", modelId)
+                        .register(registry))
+                .increment(tokens);
+        if (tokens > 1 && elapsedNanos > 0) {
+            summary("chatbot.chat.tokens.per.second", "Generation speed of a model response",
+                    Tags.of("model", modelId), 1000).record(tokens * 1e9 / elapsedNanos);
+        }
+    }
+
+    // 流式生成的记录器，每个流一个，在流的线程中调用
+    public StreamRecorder stream(String modelId, long startNanos) {
+        return new StreamRecorder(modelId, startNanos);
+    }
+
+    public final class StreamRecorder {
+        private final String modelId;
+        private final long startNanos;
+        private long firstTokenNanos;
+        private long lastTokenNanos;
+        private long tokens;
+        private boolean active;
+
+        private StreamRecorder(String modelId, long startNanos) {
+            this.modelId = modelId;
+            this.startNanos = startNanos;
+        }
+
+        public void onSubscribe() {
+            active = true;
+            activeStreams.incrementAndGet();
+        }
+
+        // Ollama 每个片段约为一个 token
+        public void onToken() {
+            lastTokenNanos = System.nanoTime();
+            if (tokens++ == 0) {
+                firstTokenNanos = lastTokenNanos;
+                timer("chatbot.chat.first.token", "Time from request start to the first streamed token",
+                        Tags.of("model", modelId)).record(firstTokenNanos - startNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        // 流结束、出错或取消时调用，只生效一次
+        public void onFinish() {
+            if (!active) {
+                return;
+            }
+            active = false;
+            activeStreams.decrementAndGet();
+            if (tokens > 0) {
+                recordGeneration(modelId, tokens, lastTokenNanos - firstTokenNanos);
+            }
+        }
+    }
+
+    private Timer timer(String name, String description, Tags tags) {
+        return timers.computeIfAbsent(name + "|" + tags, key -> Timer.builder(name)
+                .description(description)
+                .tags(tags)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(MIN_EXPECTED)
+                .maximumExpectedValue(MAX_EXPECTED)
+                .register(registry));
+    }
+
+    // 直方图的桶只覆盖到 maxExpected，避免生成过多的桶
+    private DistributionSummary summary(String name, String description, Tags tags, double maxExpected) {
+        return summaries.computeIfAbsent(name + "|" + tags, key -> DistributionSummary.builder(name)
+                .description(description)
+                .tags(tags)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(1.0)
+                .maximumExpectedValue(maxExpected)
+                .register(registry));
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.chatbot.prompt;
+
+import org.springframework.ai.chat.messages.Message;
+
+import java.util.List;
+
+public record AssembledPrompt(List<Message> messages, int estimatedTokens, int passageCount, int historyCount) {
+}
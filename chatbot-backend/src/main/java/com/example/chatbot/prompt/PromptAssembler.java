@@ -0,0 +1,76 @@
+package com.example.chatbot.prompt;
+
+import com.example.chatbot.config.ChatProperties;
+import com.example.chatbot.config.ModelProperties;
+import com.example.chatbot.entity.ChatMessage;
+import com.example.chatbot.retrieval.Passage;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// 按模型上下文窗口分配 token 预算，优先级依次为：系统提示、当前问题、检索段落、最近的历史消息
+@Component
+@RequiredArgsConstructor
+public class PromptAssembler {
+    private static final Logger log = LoggerFactory.getLogger(PromptAssembler.class);
+
+    private final ChatProperties chatProperties;
+
+    // history 按时间正序排列
+    public AssembledPrompt assemble(String systemPrompt, String question, List<Passage> passages,
+                                    List<ChatMessage> history, ModelProperties.ModelOption modelOption) {
+        int budget = modelOption.getContextWindow() - modelOption.getResponseReserve()
+                - chatProperties.getPrompt().getOverheadTokens();
+        int used = TokenEstimator.estimateMessage(systemPrompt) + TokenEstimator.estimateMessage(question);
+        if (used > budget) {
+            log.warn("Question alone exceeds prompt budget ({} > {} tokens)", used, budget);
+        }
+
+        // 检索段落按相关度顺序加入，放不下的跳过，后面较短的段落仍有机会加入
+        StringBuilder context = new StringBuilder();
+        int passageCount = 0;
+        for (Passage passage : passages) {
+            String block = (passageCount == 0 ? "\n\n相关文档：\n" : "")
+                    + "标题：" + passage.title() + "\n"
+                    + "内容：" + passage.text() + "\n\n";
+            int cost = TokenEstimator.estimate(block);
+            if (used + cost > budget) {
+                continue;
+            }
+            context.append(block);
+            used += cost;
+            passageCount++;
+        }
+
+        // 从最新的历史消息往前加入，遇到放不下的即停止，保证保留的历史是连续的
+        int historyStart = history.size();
+        for (int i = history.size() - 1; i >= 0; i--) {
+            int cost = TokenEstimator.estimateMessage(history.get(i).getContent());
+            if (used + cost > budget) {
+                break;
+            }
+            used += cost;
+            historyStart = i;
+        }
+
+        List<Message> messages = new ArrayList<>(history.size() - historyStart + 2);
+        messages.add(new SystemMessage(systemPrompt));
+        for (ChatMessage msg : history.subList(historyStart, history.size())) {
+            if ("user".equals(msg.getRole())) {
+                messages.add(new UserMessage(msg.getContent()));
+            } else {
+                messages.add(new AssistantMessage(msg.getContent()));
+            }
+        }
+        messages.add(new UserMessage(question + context));
+        return new AssembledPrompt(messages, used, passageCount, history.size() - historyStart);
+    }
+}
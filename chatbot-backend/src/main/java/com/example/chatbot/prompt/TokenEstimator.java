@@ -0,0 +1,35 @@
+package com.example.chatbot.prompt;
+
+public final class TokenEstimator {
+    // 每条消息的角色标记、分隔符等固定开销
+    public static final int MESSAGE_OVERHEAD = 4;
+
+    private TokenEstimator() {
+    }
+
+    // 本地粗略估算，宁多勿少：中日韩字符按每字 1 个 token，其余字符按每 4 个字符 1 个 token
+    public static int estimate(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        int wide = 0;
+        int narrow = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLowSurrogate(c)) {
+                // 代理对只按高位计一次
+                continue;
+            }
+            if (c >= 0x2E80 || Character.isHighSurrogate(c)) {
+                wide++;
+            } else {
+                narrow++;
+            }
+        }
+        return wide + (narrow + 3) / 4;
+    }
+
+    public static int estimateMessage(String text) {
+        return estimate(text) + MESSAGE_OVERHEAD;
+    }
+}
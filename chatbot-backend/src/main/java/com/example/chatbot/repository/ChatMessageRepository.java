@@ -2,20 +2,68 @@ package com.example.chatbot.repository;
 
 import com.example.chatbot.entity.ChatMessage;
 import com.example.chatbot.entity.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long> {
-    List<ChatMessage> findBySessionIdAndUserOrderByCreatedAtAsc(String sessionId, User user);
-    
-    @Query("SELECT m FROM ChatMessage m WHERE m.sessionId = :sessionId AND m.user = :user ORDER BY m.createdAt DESC LIMIT 10")
-    List<ChatMessage> findLast10BySessionIdAndUserOrderByCreatedAtDesc(String sessionId, User user);
+    List<ChatMessage> findBySessionIdAndUserOrderByCreatedAtDesc(String sessionId, User user, Limit limit);
+
+    List<ChatMessage> findBySessionIdAndUserOrderByCreatedAtDescIdDesc(String sessionId, User user, Limit limit);
+
+    List<ChatMessage> findBySessionIdAndUserOrderByCreatedAtAscIdAsc(String sessionId, User user, Limit limit);
+
+    // 键集分页：游标之前（更早）的消息，按时间倒序返回
+    @Query("SELECT m FROM ChatMessage m WHERE m.sessionId = :sessionId AND m.user = :user " +
+            "AND (m.createdAt < :createdAt OR (m.createdAt = :createdAt AND m.id < :id)) " +
+            "ORDER BY m.createdAt DESC, m.id DESC")
+    List<ChatMessage> findPageBefore(String sessionId, User user, LocalDateTime createdAt, Long id, Limit limit);
 
-    @Query("SELECT DISTINCT c.sessionId FROM ChatMessage c WHERE c.user = :user")
-    List<String> findDistinctSessionIdByUser(User user);
+    // 键集分页：游标之后（更新）的消息，按时间正序返回
+    @Query("SELECT m FROM ChatMessage m WHERE m.sessionId = :sessionId AND m.user = :user " +
+            "AND (m.createdAt > :createdAt OR (m.createdAt = :createdAt AND m.id > :id)) " +
+            "ORDER BY m.createdAt ASC, m.id ASC")
+    List<ChatMessage> findPageAfter(String sessionId, User user, LocalDateTime createdAt, Long id, Limit limit);
+
+    // 逐行读取整个会话，使用投影避免实体进入持久化上下文；需在事务中调用才能按 fetch size 分批读取
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "200"))
+    @Query("SELECT m.role AS role, m.content AS content, m.modelId AS modelId, m.createdAt AS createdAt " +
+            "FROM ChatMessage m WHERE m.sessionId = :sessionId AND m.user = :user ORDER BY m.createdAt, m.id")
+    Stream<HistoryRow> streamBySessionIdAndUser(String sessionId, User user);
 
     void deleteBySessionIdAndUser(String sessionId, User user);
+
+    @Query("SELECT m.id AS id, m.user.id AS userId, m.modelId AS modelId, m.questionFingerprint AS questionFingerprint " +
+            "FROM ChatMessage m WHERE m.knowledgeVersion = :version AND m.questionFingerprint IS NOT NULL " +
+            "ORDER BY m.id DESC")
+    List<FingerprintRow> findFingerprints(long version, Limit limit);
+
+    interface HistoryRow {
+        String getRole();
+
+        String getContent();
+
+        String getModelId();
+
+        LocalDateTime getCreatedAt();
+    }
+
+    interface FingerprintRow {
+        Long getId();
+
+        Long getUserId();
+
+        String getModelId();
+
+        Long getQuestionFingerprint();
+    }
 } 
\ No newline at end of file
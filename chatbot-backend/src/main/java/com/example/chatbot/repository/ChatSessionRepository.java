@@ -0,0 +1,58 @@
+package com.example.chatbot.repository;
+
+import com.example.chatbot.entity.ChatSession;
+import com.example.chatbot.entity.User;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ChatSessionRepository extends JpaRepository<ChatSession, Long> {
+    // 新会话插入一行，已有会话只累加消息数并推进最后活跃时间，标题保持首个问题
+    @Modifying
+    @Query(value = "INSERT INTO chat_sessions (session_id, user_id, title, model_id, created_at, last_activity_at, message_count) " +
+            "VALUES (:sessionId, :userId, :title, :modelId, :createdAt, :lastActivityAt, :messageCount) " +
+            "ON CONFLICT (user_id, session_id) DO UPDATE SET " +
+            "last_activity_at = GREATEST(chat_sessions.last_activity_at, EXCLUDED.last_activity_at), " +
+            "message_count = chat_sessions.message_count + EXCLUDED.message_count, " +
+            "model_id = EXCLUDED.model_id", nativeQuery = true)
+    void upsertActivity(String sessionId, Long userId, String title, String modelId,
+                        LocalDateTime createdAt, LocalDateTime lastActivityAt, int messageCount);
+
+    List<ChatSession> findByUserOrderByLastActivityAtDescIdDesc(User user, Limit limit);
+
+    Optional<ChatSession> findBySessionIdAndUser(String sessionId, User user);
+
+    // 只有摘要未被其他任务更新过时才写入，返回 0 表示会话已删除或摘要已变化
+    @Modifying
+    @Query("UPDATE ChatSession s SET s.summary = :summary, s.summaryUntil = :until, s.summaryUntilId = :untilId, " +
+            "s.summarizedCount = :summarizedCount WHERE s.id = :id AND s.summarizedCount = :expectedCount")
+    int updateSummary(Long id, String summary, LocalDateTime until, Long untilId, int summarizedCount,
+                      int expectedCount);
+
+    // 键集分页：从上一页最后一行之后继续，不随页码增大而变慢
+    @Query("SELECT s FROM ChatSession s WHERE s.user = :user AND (s.lastActivityAt < :lastActivityAt " +
+            "OR (s.lastActivityAt = :lastActivityAt AND s.id < :id)) ORDER BY s.lastActivityAt DESC, s.id DESC")
+    List<ChatSession> findPageAfter(User user, LocalDateTime lastActivityAt, Long id, Limit limit);
+
+    @Modifying
+    @Query("DELETE FROM ChatSession s WHERE s.sessionId = :sessionId AND s.user = :user")
+    void deleteBySessionIdAndUser(String sessionId, User user);
+
+    // 由已有消息生成会话行，升级后首次启动时执行一次
+    @Modifying
+    @Query(value = "INSERT INTO chat_sessions (session_id, user_id, title, model_id, created_at, last_activity_at, message_count) " +
+            "SELECT m.session_id, m.user_id, " +
+            "LEFT((SELECT f.content FROM chat_messages f WHERE f.user_id = m.user_id AND f.session_id = m.session_id " +
+            "ORDER BY f.created_at, f.id LIMIT 1), :titleLength), " +
+            "MAX(m.model_id), MIN(m.created_at), MAX(m.created_at), COUNT(*) " +
+            "FROM chat_messages m WHERE m.session_id IS NOT NULL GROUP BY m.user_id, m.session_id " +
+            "ON CONFLICT (user_id, session_id) DO NOTHING", nativeQuery = true)
+    int backfillFromMessages(int titleLength);
+}
@@ -5,6 +5,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
@@ -15,4 +16,16 @@ public interface KnowledgeBaseRepository extends JpaRepository<KnowledgeBase, Lo
             "LOWER(title) LIKE LOWER(:pattern) OR " +
             "LOWER(content) LIKE LOWER(:pattern)", nativeQuery = true)
     List<KnowledgeBase> searchByKeyword(@Param("pattern") String pattern);
+
+    @Query("SELECT COUNT(k) AS entryCount, MAX(k.id) AS maxId, " +
+            "MAX(COALESCE(k.updatedAt, k.createdAt)) AS lastModified FROM KnowledgeBase k")
+    VersionStamp findVersionStamp();
+
+    interface VersionStamp {
+        long getEntryCount();
+
+        Long getMaxId();
+
+        LocalDateTime getLastModified();
+    }
 }
\ No newline at end of file
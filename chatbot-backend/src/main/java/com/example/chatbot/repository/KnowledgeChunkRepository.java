@@ -0,0 +1,31 @@
+package com.example.chatbot.repository;
+
+import com.example.chatbot.entity.KnowledgeChunk;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface KnowledgeChunkRepository extends JpaRepository<KnowledgeChunk, Long> {
+    List<KnowledgeChunk> findByKnowledgeIdOrderByChunkIndexAsc(Long knowledgeId);
+
+    @Modifying
+    @Query("DELETE FROM KnowledgeChunk c WHERE c.knowledgeId = :knowledgeId")
+    void deleteByKnowledgeId(Long knowledgeId);
+
+    @Modifying
+    @Query("DELETE FROM KnowledgeChunk c WHERE c.knowledgeId NOT IN :knowledgeIds")
+    void deleteByKnowledgeIdNotIn(Collection<Long> knowledgeIds);
+
+    // 只在段落内容未变化时写入向量，段落已被改写或删除时返回 0
+    @Modifying
+    @Transactional
+    @Query("UPDATE KnowledgeChunk c SET c.embedding = :embedding, c.embeddingModel = :embeddingModel "
+            + "WHERE c.id = :id AND c.contentHash = :contentHash")
+    int updateEmbedding(Long id, String contentHash, byte[] embedding, String embeddingModel);
+}
@@ -2,7 +2,9 @@ package com.example.chatbot.repository;
 
 import com.example.chatbot.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
 import java.util.Optional;
 
 @Repository
@@ -11,4 +13,14 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
     boolean existsByUsername(String username);
     boolean existsByEmail(String email);
+
+    // 令牌验证只需确认用户仍存在并取得凭据变更时间，不加载角色集合
+    @Query("SELECT u.id AS id, u.credentialsChangedAt AS credentialsChangedAt FROM User u WHERE u.id = :id")
+    Optional<CredentialsStamp> findCredentialsStamp(Long id);
+
+    interface CredentialsStamp {
+        Long getId();
+
+        LocalDateTime getCredentialsChangedAt();
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,10 @@
+package com.example.chatbot.retrieval;
+
+public interface EmbeddingProvider {
+
+    // 写入持久化记录，模型变化时已有向量需要重新计算
+    String modelName();
+
+    // 返回 L2 归一化后的向量，相似度可直接用点积计算
+    float[] embed(String text);
+}
@@ -0,0 +1,44 @@
+package com.example.chatbot.retrieval;
+
+import com.example.chatbot.config.RetrievalProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+
+// 本地确定性向量：对分词结果做特征哈希，不依赖外部模型，适用于测试和离线环境
+@Component
+@ConditionalOnProperty(prefix = "chatbot.retrieval.embedding", name = "provider", havingValue = "local")
+public class HashingEmbeddingProvider implements EmbeddingProvider {
+    private final int dimensions;
+
+    public HashingEmbeddingProvider(RetrievalProperties retrievalProperties) {
+        this.dimensions = retrievalProperties.getEmbedding().getDimensions();
+    }
+
+    @Override
+    public String modelName() {
+        return "local-hashing-" + dimensions;
+    }
+
+    @Override
+    public float[] embed(String text) {
+        float[] vector = new float[dimensions];
+        for (String token : TextTokenizer.tokenize(text)) {
+            long hash = fnv1a(token);
+            int bucket = (int) Math.floorMod(hash, (long) dimensions);
+            // 用哈希的高位决定符号，减少不同词项落入同一维度时的相互抵消偏差
+            vector[bucket] += (hash >>> 63) == 0 ? 1f : -1f;
+        }
+        return VectorMath.normalize(vector);
+    }
+
+    private static long fnv1a(String token) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : token.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
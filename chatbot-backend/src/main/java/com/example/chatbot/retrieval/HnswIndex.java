@@ -0,0 +1,222 @@
+package com.example.chatbot.retrieval;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+// 分层可导航小世界图（HNSW）近似最近邻索引，向量需预先归一化，相似度为点积。
+// 非线程安全，由调用方负责加锁。删除只做标记，被删节点仍参与图导航，直到 compact() 重建。
+public class HnswIndex {
+    private final int dimensions;
+    private final int m;
+    private final int maxM0;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final Random random = new Random(42);
+
+    private float[][] vectors = new float[16][];
+    private long[] ids = new long[16];
+    // 节点 -> 层 -> 邻居节点
+    private int[][][] links = new int[16][][];
+    private final BitSet deleted = new BitSet();
+    private final Map<Long, Integer> nodeById = new HashMap<>();
+    private int nodeCount;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    public record Neighbor(long id, float similarity) {
+    }
+
+    private record Candidate(int node, float similarity) {
+    }
+
+    public HnswIndex(int dimensions, int m, int efConstruction) {
+        this.dimensions = dimensions;
+        this.m = m;
+        this.maxM0 = m * 2;
+        this.efConstruction = efConstruction;
+        this.levelMultiplier = 1 / Math.log(m);
+    }
+
+    public int dimensions() {
+        return dimensions;
+    }
+
+    public int size() {
+        return nodeById.size();
+    }
+
+    public int deletedCount() {
+        return deleted.cardinality();
+    }
+
+    public void add(long id, float[] vector) {
+        if (vector.length != dimensions) {
+            throw new IllegalArgumentException("Expected " + dimensions + " dimensions but got " + vector.length);
+        }
+        remove(id);
+        int node = allocate(id, vector);
+        int level = randomLevel();
+        links[node] = new int[level + 1][];
+        for (int l = 0; l <= level; l++) {
+            links[node][l] = new int[0];
+        }
+        if (entryPoint < 0) {
+            entryPoint = node;
+            maxLevel = level;
+            return;
+        }
+
+        int current = entryPoint;
+        for (int l = maxLevel; l > level; l--) {
+            current = searchLayer(vector, current, 1, l).peek().node();
+        }
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            PriorityQueue<Candidate> found = searchLayer(vector, current, efConstruction, l);
+            List<Candidate> nearest = sortedDescending(found);
+            int maxConnections = l == 0 ? maxM0 : m;
+            int[] selected = nearest.stream()
+                    .limit(m)
+                    .mapToInt(Candidate::node)
+                    .toArray();
+            links[node][l] = selected;
+            for (int neighbor : selected) {
+                connect(neighbor, node, l, maxConnections);
+            }
+            current = nearest.get(0).node();
+        }
+        if (level > maxLevel) {
+            maxLevel = level;
+            entryPoint = node;
+        }
+    }
+
+    public void remove(long id) {
+        Integer node = nodeById.remove(id);
+        if (node != null) {
+            deleted.set(node);
+        }
+    }
+
+    public List<Neighbor> search(float[] query, int k, int ef) {
+        if (nodeById.isEmpty() || k <= 0) {
+            return List.of();
+        }
+        int current = entryPoint;
+        for (int l = maxLevel; l > 0; l--) {
+            current = searchLayer(query, current, 1, l).peek().node();
+        }
+        // 被删除的节点会占用候选位置，适当放大搜索宽度
+        int width = Math.max(ef, k) + Math.min(deleted.cardinality(), k);
+        List<Candidate> found = sortedDescending(searchLayer(query, current, width, 0));
+        List<Neighbor> result = new ArrayList<>(k);
+        for (Candidate candidate : found) {
+            if (!deleted.get(candidate.node())) {
+                result.add(new Neighbor(ids[candidate.node()], candidate.similarity()));
+                if (result.size() == k) {
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    // 仅用存活节点重建索引，回收已删除节点占用的空间
+    public HnswIndex compact() {
+        HnswIndex rebuilt = new HnswIndex(dimensions, m, efConstruction);
+        for (int node = 0; node < nodeCount; node++) {
+            if (!deleted.get(node)) {
+                rebuilt.add(ids[node], vectors[node]);
+            }
+        }
+        return rebuilt;
+    }
+
+    private int allocate(long id, float[] vector) {
+        if (nodeCount == vectors.length) {
+            int capacity = vectors.length * 2;
+            vectors = Arrays.copyOf(vectors, capacity);
+            ids = Arrays.copyOf(ids, capacity);
+            links = Arrays.copyOf(links, capacity);
+        }
+        int node = nodeCount++;
+        vectors[node] = vector;
+        ids[node] = id;
+        nodeById.put(id, node);
+        return node;
+    }
+
+    private int randomLevel() {
+        return (int) Math.floor(-Math.log(1 - random.nextDouble()) * levelMultiplier);
+    }
+
+    private void connect(int from, int to, int level, int maxConnections) {
+        int[] existing = links[from][level];
+        int[] updated = Arrays.copyOf(existing, existing.length + 1);
+        updated[existing.length] = to;
+        if (updated.length > maxConnections) {
+            // 超出上限时只保留与该节点最相似的邻居
+            float[] base = vectors[from];
+            updated = Arrays.stream(updated)
+                    .boxed()
+                    .sorted(Comparator.comparingDouble((Integer n) -> VectorMath.dot(base, vectors[n])).reversed())
+                    .limit(maxConnections)
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+        }
+        links[from][level] = updated;
+    }
+
+    // 返回以相似度升序出队的结果堆（堆顶为当前最差结果）
+    private PriorityQueue<Candidate> searchLayer(float[] query, int entry, int ef, int level) {
+        BitSet visited = new BitSet(nodeCount);
+        PriorityQueue<Candidate> candidates = new PriorityQueue<>(
+                Comparator.comparingDouble(Candidate::similarity).reversed());
+        PriorityQueue<Candidate> results = new PriorityQueue<>(
+                Comparator.comparingDouble(Candidate::similarity));
+
+        Candidate start = new Candidate(entry, VectorMath.dot(query, vectors[entry]));
+        visited.set(entry);
+        candidates.add(start);
+        results.add(start);
+
+        while (!candidates.isEmpty()) {
+            Candidate current = candidates.poll();
+            if (results.size() >= ef && current.similarity() < results.peek().similarity()) {
+                break;
+            }
+            int[][] nodeLinks = links[current.node()];
+            if (level >= nodeLinks.length) {
+                continue;
+            }
+            for (int neighbor : nodeLinks[level]) {
+                if (visited.get(neighbor)) {
+                    continue;
+                }
+                visited.set(neighbor);
+                float similarity = VectorMath.dot(query, vectors[neighbor]);
+                if (results.size() < ef || similarity > results.peek().similarity()) {
+                    Candidate candidate = new Candidate(neighbor, similarity);
+                    candidates.add(candidate);
+                    results.add(candidate);
+                    if (results.size() > ef) {
+                        results.poll();
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    private static List<Candidate> sortedDescending(PriorityQueue<Candidate> queue) {
+        List<Candidate> sorted = new ArrayList<>(queue);
+        sorted.sort(Comparator.comparingDouble(Candidate::similarity).reversed());
+        return sorted;
+    }
+}
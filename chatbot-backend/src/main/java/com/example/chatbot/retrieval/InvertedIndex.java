@@ -0,0 +1,182 @@
+package com.example.chatbot.retrieval;
+
+import com.example.chatbot.config.RetrievalProperties;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+@Component
+@RequiredArgsConstructor
+public class InvertedIndex {
+    private final RetrievalProperties retrievalProperties;
+
+    // 词项 -> (段落ID -> 词频)
+    private final Map<String, Map<Long, Integer>> postings = new HashMap<>();
+    private final Map<Long, IndexedPassage> documents = new HashMap<>();
+    // 知识条目ID -> 段落ID
+    private final Map<Long, Set<Long>> passagesByKnowledge = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private long totalLength;
+
+    private record IndexedPassage(Passage passage, Map<String, Integer> termFrequencies, int length) {
+    }
+
+    public void rebuild(Collection<Passage> passages) {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documents.clear();
+            passagesByKnowledge.clear();
+            totalLength = 0;
+            for (Passage passage : passages) {
+                addInternal(passage);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // 用新的段落集合替换某个知识条目的全部段落
+    public void replace(Long knowledgeId, Collection<Passage> passages) {
+        lock.writeLock().lock();
+        try {
+            removeKnowledgeInternal(knowledgeId);
+            for (Passage passage : passages) {
+                addInternal(passage);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeKnowledge(Long knowledgeId) {
+        lock.writeLock().lock();
+        try {
+            removeKnowledgeInternal(knowledgeId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<ScoredPassage> search(String query, int topK) {
+        // 查询词去重，BM25 对每个词项只累加一次
+        LinkedHashSet<String> terms = new LinkedHashSet<>(TextTokenizer.tokenize(query));
+        if (terms.isEmpty() || topK <= 0) {
+            return List.of();
+        }
+        RetrievalProperties.Bm25 bm25 = retrievalProperties.getBm25();
+
+        lock.readLock().lock();
+        try {
+            int docCount = documents.size();
+            if (docCount == 0) {
+                return List.of();
+            }
+            double avgLength = (double) totalLength / docCount;
+            Map<Long, Double> scores = new HashMap<>();
+            for (String term : terms) {
+                Map<Long, Integer> posting = postings.get(term);
+                if (posting == null) {
+                    continue;
+                }
+                double idf = Math.log(1 + (docCount - posting.size() + 0.5) / (posting.size() + 0.5));
+                for (Map.Entry<Long, Integer> entry : posting.entrySet()) {
+                    int tf = entry.getValue();
+                    int length = documents.get(entry.getKey()).length();
+                    double norm = tf + bm25.getK1() * (1 - bm25.getB() + bm25.getB() * length / avgLength);
+                    double score = idf * tf * (bm25.getK1() + 1) / norm;
+                    scores.merge(entry.getKey(), score, Double::sum);
+                }
+            }
+            return topHits(scores, topK);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<ScoredPassage> topHits(Map<Long, Double> scores, int topK) {
+        PriorityQueue<Map.Entry<Long, Double>> heap = new PriorityQueue<>(Map.Entry.comparingByValue());
+        for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+            if (heap.size() < topK) {
+                heap.offer(entry);
+            } else if (entry.getValue() > heap.peek().getValue()) {
+                heap.poll();
+                heap.offer(entry);
+            }
+        }
+        List<ScoredPassage> hits = new ArrayList<>(heap.size());
+        for (Map.Entry<Long, Double> entry : heap) {
+            hits.add(new ScoredPassage(documents.get(entry.getKey()).passage(), entry.getValue()));
+        }
+        hits.sort(Comparator.comparingDouble(ScoredPassage::score).reversed());
+        if (!hits.isEmpty()) {
+            double minScore = hits.get(0).score() * retrievalProperties.getMinScoreRatio();
+            hits.removeIf(hit -> hit.score() < minScore);
+        }
+        return hits;
+    }
+
+    private void addInternal(Passage passage) {
+        Map<String, Integer> termFrequencies = new HashMap<>();
+        int titleBoost = retrievalProperties.getBm25().getTitleBoost();
+        for (String term : TextTokenizer.tokenize(passage.title())) {
+            termFrequencies.merge(term, titleBoost, Integer::sum);
+        }
+        for (String term : TextTokenizer.tokenize(passage.text())) {
+            termFrequencies.merge(term, 1, Integer::sum);
+        }
+        int length = 0;
+        for (Map.Entry<String, Integer> term : termFrequencies.entrySet()) {
+            postings.computeIfAbsent(term.getKey(), k -> new HashMap<>()).put(passage.id(), term.getValue());
+            length += term.getValue();
+        }
+        documents.put(passage.id(), new IndexedPassage(passage, termFrequencies, length));
+        passagesByKnowledge.computeIfAbsent(passage.knowledgeId(), k -> new HashSet<>()).add(passage.id());
+        totalLength += length;
+    }
+
+    private void removeKnowledgeInternal(Long knowledgeId) {
+        Set<Long> passageIds = passagesByKnowledge.remove(knowledgeId);
+        if (passageIds != null) {
+            passageIds.forEach(this::removeInternal);
+        }
+    }
+
+    private void removeInternal(Long id) {
+        IndexedPassage existing = documents.remove(id);
+        if (existing == null) {
+            return;
+        }
+        for (String term : existing.termFrequencies().keySet()) {
+            Map<Long, Integer> posting = postings.get(term);
+            if (posting != null) {
+                posting.remove(id);
+                if (posting.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+        totalLength -= existing.length();
+    }
+}
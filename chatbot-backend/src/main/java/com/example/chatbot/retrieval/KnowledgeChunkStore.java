@@ -0,0 +1,127 @@
+package com.example.chatbot.retrieval;
+
+import com.example.chatbot.config.RetrievalProperties;
+import com.example.chatbot.entity.KnowledgeBase;
+import com.example.chatbot.entity.KnowledgeChunk;
+import com.example.chatbot.repository.KnowledgeChunkRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+// 维护知识条目的段落切分结果及其向量，内容变化时只重写受影响的段落
+@Component
+@RequiredArgsConstructor
+public class KnowledgeChunkStore {
+    private static final Logger log = LoggerFactory.getLogger(KnowledgeChunkStore.class);
+
+    private final KnowledgeChunkRepository chunkRepository;
+    private final EmbeddingProvider embeddingProvider;
+    private final RetrievalProperties retrievalProperties;
+
+    private record StoredEmbedding(byte[] vector, String model) {
+    }
+
+    // 重新切分条目内容并与已有段落比对，未变化的段落保持不动，移动过的段落复用原有向量
+    public List<KnowledgeChunk> sync(KnowledgeBase entry) {
+        RetrievalProperties.Chunk chunkConfig = retrievalProperties.getChunk();
+        List<String> texts = TextChunker.split(entry.getContent(), chunkConfig.getSize(), chunkConfig.getOverlap());
+        List<KnowledgeChunk> existing = chunkRepository.findByKnowledgeIdOrderByChunkIndexAsc(entry.getId());
+
+        // 先记录原有向量，已有行会在下面被改写为其他段落
+        Map<String, StoredEmbedding> embeddings = new HashMap<>();
+        for (KnowledgeChunk chunk : existing) {
+            if (chunk.getEmbedding() != null) {
+                embeddings.putIfAbsent(chunk.getContentHash(),
+                        new StoredEmbedding(chunk.getEmbedding(), chunk.getEmbeddingModel()));
+            }
+        }
+
+        List<KnowledgeChunk> result = new ArrayList<>(texts.size());
+        List<KnowledgeChunk> changed = new ArrayList<>();
+        for (int i = 0; i < texts.size(); i++) {
+            String hash = contentHash(entry.getTitle(), texts.get(i));
+            KnowledgeChunk chunk = i < existing.size() ? existing.get(i) : new KnowledgeChunk();
+            if (hash.equals(chunk.getContentHash())) {
+                result.add(chunk);
+                continue;
+            }
+            StoredEmbedding moved = embeddings.get(hash);
+            chunk.setKnowledgeId(entry.getId());
+            chunk.setChunkIndex(i);
+            chunk.setContent(texts.get(i));
+            chunk.setContentHash(hash);
+            chunk.setEmbedding(moved != null ? moved.vector() : null);
+            chunk.setEmbeddingModel(moved != null ? moved.model() : null);
+            changed.add(chunk);
+            result.add(chunk);
+        }
+        if (existing.size() > texts.size()) {
+            chunkRepository.deleteAll(existing.subList(texts.size(), existing.size()));
+        }
+        chunkRepository.saveAll(changed);
+        return result;
+    }
+
+    public void delete(Long knowledgeId) {
+        chunkRepository.deleteByKnowledgeId(knowledgeId);
+    }
+
+    // 清理绕过服务层直接从数据库删除的条目遗留的段落
+    @Transactional
+    public void deleteOrphans(Collection<Long> knowledgeIds) {
+        chunkRepository.deleteByKnowledgeIdNotIn(knowledgeIds);
+    }
+
+    // 为缺少向量或向量模型已变化的段落计算向量，向量服务不可用时停止并返回已有结果。
+    // 计算期间条目可能已被修改或删除，只按 id 和内容哈希写回，已过期的段落不写入也不返回
+    public List<SemanticIndex.Entry> embed(KnowledgeBase entry, List<KnowledgeChunk> chunks) {
+        List<SemanticIndex.Entry> entries = new ArrayList<>(chunks.size());
+        String model = embeddingProvider.modelName();
+        for (KnowledgeChunk chunk : chunks) {
+            Passage passage = toPassage(entry, chunk);
+            if (chunk.getEmbedding() == null || !model.equals(chunk.getEmbeddingModel())) {
+                float[] vector;
+                try {
+                    vector = embeddingProvider.embed(passage.indexText());
+                } catch (RuntimeException e) {
+                    log.warn("Failed to embed passages of knowledge entry {}: {}", entry.getId(), e.getMessage());
+                    break;
+                }
+                byte[] bytes = VectorMath.toBytes(vector);
+                if (chunkRepository.updateEmbedding(chunk.getId(), chunk.getContentHash(), bytes, model) == 0) {
+                    log.debug("Skipping stale passage {} of knowledge entry {}", chunk.getId(), entry.getId());
+                    continue;
+                }
+                chunk.setEmbedding(bytes);
+                chunk.setEmbeddingModel(model);
+            }
+            entries.add(new SemanticIndex.Entry(passage, VectorMath.fromBytes(chunk.getEmbedding())));
+        }
+        return entries;
+    }
+
+    public static Passage toPassage(KnowledgeBase entry, KnowledgeChunk chunk) {
+        return new Passage(chunk.getId(), entry.getId(), entry.getTitle(), chunk.getChunkIndex(), chunk.getContent());
+    }
+
+    private static String contentHash(String title, String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest((title + "\n" + text).getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
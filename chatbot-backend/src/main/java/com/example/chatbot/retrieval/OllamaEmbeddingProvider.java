@@ -0,0 +1,27 @@
+package com.example.chatbot.retrieval;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "chatbot.retrieval.embedding", name = "provider", havingValue = "ollama", matchIfMissing = true)
+public class OllamaEmbeddingProvider implements EmbeddingProvider {
+    private final EmbeddingModel embeddingModel;
+
+    @Value("${spring.ai.ollama.embedding.model:mxbai-embed-large}")
+    private String model;
+
+    @Override
+    public String modelName() {
+        return "ollama:" + model;
+    }
+
+    @Override
+    public float[] embed(String text) {
+        return VectorMath.normalize(embeddingModel.embed(text));
+    }
+}
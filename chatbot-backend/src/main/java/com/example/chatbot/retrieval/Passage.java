@@ -0,0 +1,9 @@
+package com.example.chatbot.retrieval;
+
+// 知识条目切分后的段落，检索和拼接提示词都以段落为单位
+public record Passage(Long id, Long knowledgeId, String title, int chunkIndex, String text) {
+
+    public String indexText() {
+        return title + "\n" + text;
+    }
+}
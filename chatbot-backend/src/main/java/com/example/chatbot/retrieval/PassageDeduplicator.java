@@ -0,0 +1,51 @@
+package com.example.chatbot.retrieval;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public final class PassageDeduplicator {
+
+    private PassageDeduplicator() {
+    }
+
+    // 按得分顺序保留段落，与已保留段落的词项重叠系数达到阈值的视为重复（包括被另一段落基本包含的情况）
+    public static List<ScoredPassage> deduplicate(List<ScoredPassage> ranked, double threshold, int limit) {
+        List<ScoredPassage> kept = new ArrayList<>(limit);
+        List<Set<String>> keptTerms = new ArrayList<>(limit);
+        for (ScoredPassage candidate : ranked) {
+            if (kept.size() >= limit) {
+                break;
+            }
+            Set<String> terms = new HashSet<>(TextTokenizer.tokenize(candidate.passage().text()));
+            boolean duplicate = false;
+            for (Set<String> existing : keptTerms) {
+                if (overlap(terms, existing) >= threshold) {
+                    duplicate = true;
+                    break;
+                }
+            }
+            if (!duplicate) {
+                kept.add(candidate);
+                keptTerms.add(terms);
+            }
+        }
+        return kept;
+    }
+
+    private static double overlap(Set<String> a, Set<String> b) {
+        if (a.isEmpty() || b.isEmpty()) {
+            return a.isEmpty() && b.isEmpty() ? 1 : 0;
+        }
+        Set<String> smaller = a.size() <= b.size() ? a : b;
+        Set<String> larger = smaller == a ? b : a;
+        int intersection = 0;
+        for (String term : smaller) {
+            if (larger.contains(term)) {
+                intersection++;
+            }
+        }
+        return (double) intersection / smaller.size();
+    }
+}
@@ -0,0 +1,4 @@
+package com.example.chatbot.retrieval;
+
+public record ScoredPassage(Passage passage, double score) {
+}
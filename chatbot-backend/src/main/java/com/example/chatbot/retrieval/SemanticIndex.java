@@ -0,0 +1,131 @@
+package com.example.chatbot.retrieval;
+
+import com.example.chatbot.config.RetrievalProperties;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+@Component
+@RequiredArgsConstructor
+public class SemanticIndex {
+    private static final Logger log = LoggerFactory.getLogger(SemanticIndex.class);
+
+    private final EmbeddingProvider embeddingProvider;
+    private final RetrievalProperties retrievalProperties;
+
+    private final Map<Long, Passage> passages = new HashMap<>();
+    private final Map<Long, Set<Long>> passagesByKnowledge = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private HnswIndex index;
+
+    public record Entry(Passage passage, float[] vector) {
+    }
+
+    public void rebuild(Collection<Entry> entries) {
+        lock.writeLock().lock();
+        try {
+            passages.clear();
+            passagesByKnowledge.clear();
+            index = null;
+            entries.forEach(this::addInternal);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Semantic index built with {} passages", entries.size());
+    }
+
+    // 用新的段落向量替换某个知识条目的全部段落
+    public void replace(Long knowledgeId, Collection<Entry> entries) {
+        lock.writeLock().lock();
+        try {
+            removeKnowledgeInternal(knowledgeId);
+            entries.forEach(this::addInternal);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeKnowledge(Long knowledgeId) {
+        lock.writeLock().lock();
+        try {
+            removeKnowledgeInternal(knowledgeId);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<ScoredPassage> search(String query, int topK) {
+        float[] queryVector;
+        try {
+            queryVector = embeddingProvider.embed(query);
+        } catch (RuntimeException e) {
+            log.debug("Failed to embed query, skipping semantic search: {}", e.getMessage());
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            if (index == null || queryVector.length != index.dimensions()) {
+                return List.of();
+            }
+            List<HnswIndex.Neighbor> neighbors = index.search(queryVector, topK, retrievalProperties.getHnsw().getEfSearch());
+            List<ScoredPassage> results = new ArrayList<>(neighbors.size());
+            for (HnswIndex.Neighbor neighbor : neighbors) {
+                results.add(new ScoredPassage(passages.get(neighbor.id()), neighbor.similarity()));
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void addInternal(Entry entry) {
+        Passage passage = entry.passage();
+        if (index == null) {
+            RetrievalProperties.Hnsw hnsw = retrievalProperties.getHnsw();
+            index = new HnswIndex(entry.vector().length, hnsw.getM(), hnsw.getEfConstruction());
+        }
+        if (entry.vector().length != index.dimensions()) {
+            log.warn("Skipping passage {} with {} dimensions, index expects {}",
+                    passage.id(), entry.vector().length, index.dimensions());
+            return;
+        }
+        index.add(passage.id(), entry.vector());
+        passages.put(passage.id(), passage);
+        passagesByKnowledge.computeIfAbsent(passage.knowledgeId(), k -> new HashSet<>()).add(passage.id());
+    }
+
+    private void removeKnowledgeInternal(Long knowledgeId) {
+        Set<Long> passageIds = passagesByKnowledge.remove(knowledgeId);
+        if (passageIds == null) {
+            return;
+        }
+        for (Long passageId : passageIds) {
+            passages.remove(passageId);
+            index.remove(passageId);
+        }
+    }
+
+    private void compactIfNeeded() {
+        if (index == null) {
+            return;
+        }
+        int deleted = index.deletedCount();
+        if (deleted > 0 && deleted > (index.size() + deleted) * retrievalProperties.getHnsw().getCompactThreshold()) {
+            index = index.compact();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.chatbot.retrieval;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public final class TextChunker {
+    private static final String BOUNDARIES = "\n。！？；.!?;";
+
+    private TextChunker() {
+    }
+
+    // 按字符数切分为相互重叠的段落，优先在换行或句末标点处断开
+    public static List<String> split(String text, int size, int overlap) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        String content = text.strip();
+        int length = content.length();
+        if (length <= size) {
+            return List.of(content);
+        }
+
+        List<String> chunks = new ArrayList<>();
+        int start = 0;
+        while (start < length) {
+            int end = Math.min(start + size, length);
+            if (end < length) {
+                int boundary = lastBoundary(content, start + size / 2, end);
+                end = boundary > 0 ? boundary : avoidSplitSurrogate(content, end);
+            }
+            String chunk = content.substring(start, end).strip();
+            if (!chunk.isEmpty()) {
+                chunks.add(chunk);
+            }
+            if (end >= length) {
+                break;
+            }
+            // 下一段从重叠区内最近的句子开头开始，找不到时按固定重叠回退
+            int next = Math.max(end - overlap, start + 1);
+            int boundary = firstBoundary(content, next, end);
+            start = avoidSplitSurrogate(content, boundary > 0 ? boundary : next);
+        }
+        return chunks;
+    }
+
+    private static int lastBoundary(String text, int from, int to) {
+        for (int i = to - 1; i >= from; i--) {
+            if (BOUNDARIES.indexOf(text.charAt(i)) >= 0) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    private static int firstBoundary(String text, int from, int to) {
+        for (int i = from; i < to - 1; i++) {
+            if (BOUNDARIES.indexOf(text.charAt(i)) >= 0) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    private static int avoidSplitSurrogate(String text, int index) {
+        if (index > 0 && index < text.length() && Character.isLowSurrogate(text.charAt(index))) {
+            return index - 1;
+        }
+        return index;
+    }
+}
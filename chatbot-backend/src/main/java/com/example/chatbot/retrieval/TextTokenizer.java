@@ -0,0 +1,65 @@
+package com.example.chatbot.retrieval;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+public final class TextTokenizer {
+
+    private TextTokenizer() {
+    }
+
+    // 中文按相邻二元组切分（孤立的单个汉字保留为单字），英文和数字按连续片段切分并转为小写
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            int cp = text.codePointAt(i);
+            if (isHan(cp)) {
+                int start = i;
+                while (i < length && isHan(text.codePointAt(i))) {
+                    i += Character.charCount(text.codePointAt(i));
+                }
+                addHanBigrams(text, start, i, tokens);
+            } else if (Character.isLetterOrDigit(cp)) {
+                int start = i;
+                while (i < length) {
+                    int c = text.codePointAt(i);
+                    if (isHan(c) || !Character.isLetterOrDigit(c)) {
+                        break;
+                    }
+                    i += Character.charCount(c);
+                }
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+            } else {
+                i += Character.charCount(cp);
+            }
+        }
+        return tokens;
+    }
+
+    private static void addHanBigrams(String text, int start, int end, List<String> tokens) {
+        int first = text.codePointAt(start);
+        int next = start + Character.charCount(first);
+        if (next >= end) {
+            tokens.add(text.substring(start, end));
+            return;
+        }
+        int i = start;
+        while (next < end) {
+            int second = text.codePointAt(next);
+            int after = next + Character.charCount(second);
+            tokens.add(text.substring(i, after));
+            i = next;
+            next = after;
+        }
+    }
+
+    private static boolean isHan(int codePoint) {
+        return Character.UnicodeScript.of(codePoint) == Character.UnicodeScript.HAN;
+    }
+}
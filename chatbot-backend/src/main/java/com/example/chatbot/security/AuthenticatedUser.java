@@ -0,0 +1,40 @@
+package com.example.chatbot.security;
+
+import com.example.chatbot.entity.User;
+import lombok.Getter;
+import org.springframework.security.core.CredentialsContainer;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.List;
+
+// 认证主体，携带用户 id，业务代码无需再按用户名查询用户
+@Getter
+public class AuthenticatedUser implements UserDetails, CredentialsContainer {
+    private final Long id;
+    private final String username;
+    private String password;
+    private final Collection<? extends GrantedAuthority> authorities;
+
+    public AuthenticatedUser(Long id, String username, String password,
+                             Collection<? extends GrantedAuthority> authorities) {
+        this.id = id;
+        this.username = username;
+        this.password = password;
+        this.authorities = authorities;
+    }
+
+    public static AuthenticatedUser of(User user) {
+        List<SimpleGrantedAuthority> authorities = user.getRoles().stream()
+                .map(role -> new SimpleGrantedAuthority(role.name()))
+                .toList();
+        return new AuthenticatedUser(user.getId(), user.getUsername(), user.getPassword(), authorities);
+    }
+
+    @Override
+    public void eraseCredentials() {
+        password = null;
+    }
+}
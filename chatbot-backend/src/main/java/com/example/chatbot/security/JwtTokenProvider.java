@@ -2,6 +2,7 @@ package com.example.chatbot.security;
 
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
@@ -14,6 +15,8 @@ import java.util.stream.Collectors;
 
 @Component
 public class JwtTokenProvider {
+    public static final String ROLES_CLAIM = "roles";
+    public static final String USER_ID_CLAIM = "uid";
 
     @Value("${jwt.secret}")
     private String jwtSecret;
@@ -21,9 +24,16 @@ public class JwtTokenProvider {
     @Value("${jwt.expiration}")
     private int jwtExpirationInMs;
 
-    private SecretKey getSigningKey() {
-        byte[] keyBytes = jwtSecret.getBytes(StandardCharsets.UTF_8);
-        return Keys.hmacShaKeyFor(keyBytes);
+    // 密钥和解析器线程安全，只构建一次
+    private SecretKey signingKey;
+    private JwtParser parser;
+
+    @PostConstruct
+    public void init() {
+        signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+        parser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
     }
 
     public String generateToken(Authentication authentication) {
@@ -35,30 +45,31 @@ public class JwtTokenProvider {
         Date currentDate = new Date();
         Date expireDate = new Date(currentDate.getTime() + jwtExpirationInMs);
 
-        return Jwts.builder()
+        JwtBuilder builder = Jwts.builder()
                 .setSubject(username)
-                .claim("roles", roles)
+                .claim(ROLES_CLAIM, roles)
                 .setIssuedAt(new Date())
-                .setExpiration(expireDate)
-                .signWith(getSigningKey())
+                .setExpiration(expireDate);
+        if (authentication.getPrincipal() instanceof AuthenticatedUser principal) {
+            builder.claim(USER_ID_CLAIM, principal.getId());
+        }
+        return builder
+                .signWith(signingKey)
                 .compact();
     }
 
+    // 验签并返回声明，令牌无效时抛出 JwtException
+    public Claims parseClaims(String token) {
+        return parser.parseClaimsJws(token).getBody();
+    }
+
     public String getUsernameFromJWT(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .getSubject();
+        return parseClaims(token).getSubject();
     }
 
     public boolean validateToken(String token) {
         try {
-            Jwts.parserBuilder()
-                    .setSigningKey(getSigningKey())
-                    .build()
-                    .parseClaimsJws(token);
+            parseClaims(token);
             return true;
         } catch (JwtException | IllegalArgumentException e) {
             return false;
@@ -66,12 +77,8 @@ public class JwtTokenProvider {
     }
 
     public long getExpirationTime(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
+        return parseClaims(token)
                 .getExpiration()
                 .getTime();
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,54 @@
+package com.example.chatbot.security;
+
+import com.example.chatbot.exception.ApiResponse;
+import com.example.chatbot.exception.ErrorCode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+// 位于 JWT 认证之后、权限校验之前：超出频率的请求直接返回 429，不会执行任何数据库查询、密码校验或模型调用。
+// 只注册在安全过滤器链中，不声明为 Bean，避免被 Servlet 容器再注册一次而在认证之前执行
+public class RateLimitFilter extends OncePerRequestFilter {
+    private final RateLimiter rateLimiter;
+    private final ObjectMapper objectMapper;
+
+    public RateLimitFilter(RateLimiter rateLimiter, ObjectMapper objectMapper) {
+        this.rateLimiter = rateLimiter;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        // CORS 预检请求不计入
+        return !rateLimiter.isEnabled() || HttpMethod.OPTIONS.matches(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain
+    ) throws ServletException, IOException {
+        long retryAfter = rateLimiter.tryAcquire(request);
+        if (retryAfter > 0) {
+            ErrorCode errorCode = ErrorCode.RATE_LIMITED;
+            response.setStatus(errorCode.getHttpStatus().value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter));
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+            objectMapper.writeValue(response.getOutputStream(), ApiResponse.error(errorCode));
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+}
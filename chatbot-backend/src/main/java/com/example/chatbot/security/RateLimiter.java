@@ -0,0 +1,67 @@
+package com.example.chatbot.security;
+
+import com.example.chatbot.config.RateLimitProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// 按路由配置的令牌桶限流。令牌桶按“路由 + 用户或 IP”创建，空闲的桶自动移除，桶的总数有上限
+@Component
+public class RateLimiter {
+    private final RateLimitProperties properties;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final Cache<BucketKey, TokenBucket> buckets;
+
+    private record BucketKey(int route, String subject) {
+    }
+
+    public RateLimiter(RateLimitProperties properties) {
+        this.properties = properties;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxKeys())
+                .expireAfterAccess(properties.getIdleTimeout())
+                .build();
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled() && !properties.getRoutes().isEmpty();
+    }
+
+    // 未匹配任何路由或令牌充足时返回 0，否则返回建议的重试等待秒数
+    public long tryAcquire(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        List<RateLimitProperties.Route> routes = properties.getRoutes();
+        for (int i = 0; i < routes.size(); i++) {
+            RateLimitProperties.Route route = routes.get(i);
+            if (pathMatcher.match(route.getPattern(), path)) {
+                if (route.getLimit() <= 0) {
+                    return 0;
+                }
+                TokenBucket bucket = buckets.get(new BucketKey(i, subjectOf(request, route)),
+                        key -> new TokenBucket(Math.max(1, route.getPeriod().toNanos() / route.getLimit()),
+                                route.burstOrLimit()));
+                long waitNanos = bucket.tryAcquire();
+                return waitNanos == 0 ? 0 : Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999));
+            }
+        }
+        return 0;
+    }
+
+    private static String subjectOf(HttpServletRequest request, RateLimitProperties.Route route) {
+        if (route.getKey() == RateLimitProperties.KeyType.USER) {
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            if (authentication != null && authentication.getPrincipal() instanceof AuthenticatedUser principal
+                    && principal.getId() != null) {
+                return "user:" + principal.getId();
+            }
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.chatbot.security;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// 无锁令牌桶：以 GCRA 算法实现，整个桶只有一个原子变量，记录令牌桶恰好被补满的理论时间。
+// 每个请求把该时间推后一个补充间隔，推后的结果超出当前时间一个桶容量以上说明令牌已用完
+public class TokenBucket {
+    // 补充一个令牌所需的时间
+    private final long intervalNanos;
+    // 桶容量对应的时间跨度
+    private final long capacityNanos;
+    private final AtomicLong fullAt;
+
+    public TokenBucket(long intervalNanos, int capacity) {
+        if (intervalNanos <= 0) {
+            throw new IllegalArgumentException("intervalNanos must be positive");
+        }
+        this.intervalNanos = intervalNanos;
+        this.capacityNanos = intervalNanos * capacity;
+        this.fullAt = new AtomicLong(System.nanoTime());
+    }
+
+    // 取一个令牌。成功返回 0，否则返回还需等待的纳秒数
+    public long tryAcquire() {
+        long now = System.nanoTime();
+        while (true) {
+            long current = fullAt.get();
+            long next = Math.max(current, now) + intervalNanos;
+            long excess = next - now - capacityNanos;
+            if (excess > 0) {
+                return excess;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,5 @@
+package com.example.chatbot.security;
+
+// 用户角色、用户名等信息变更或用户被删除时发布，之前签发的令牌中的声明不再可信
+public record UserChangedEvent(Long userId) {
+}
@@ -0,0 +1,162 @@
+package com.example.chatbot.security;
+
+import com.example.chatbot.entity.User;
+import com.example.chatbot.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// 已验证令牌的缓存：令牌哈希 -> 由声明构建的认证主体，条目在令牌过期或超过 cacheTtl 时失效。
+// 命中时既不重复验签，也不查询数据库；未命中时按主键查询用户是否存在及凭据变更时间，
+// 已删除用户的令牌被拒绝，凭据变更前签发的令牌改用数据库中的角色。
+// 其他实例上的变更只能通过 cacheTtl 到期后的重新查询感知
+@Component
+public class VerifiedTokenCache {
+    private static final Logger log = LoggerFactory.getLogger(VerifiedTokenCache.class);
+
+    private final JwtTokenProvider jwtTokenProvider;
+    private final UserRepository userRepository;
+    private final Cache<String, VerifiedToken> cache;
+    // 用户 id -> 本实例最近一次收到变更事件的时间，用于丢弃与变更并发构建的条目
+    private final Map<Long, Long> userChangedAt = new ConcurrentHashMap<>();
+
+    private record VerifiedToken(AuthenticatedUser principal, long expiresAt) {
+    }
+
+    public VerifiedTokenCache(JwtTokenProvider jwtTokenProvider, UserRepository userRepository,
+                              @Value("${jwt.cache-ttl:60000}") long cacheTtlInMs,
+                              @Value("${jwt.cache-size:10000}") long cacheSize) {
+        this.jwtTokenProvider = jwtTokenProvider;
+        this.userRepository = userRepository;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfter(new Expiry<String, VerifiedToken>() {
+                    @Override
+                    public long expireAfterCreate(String key, VerifiedToken value, long currentTime) {
+                        long remaining = Math.min(value.expiresAt() - System.currentTimeMillis(), cacheTtlInMs);
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(0, remaining));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, VerifiedToken value, long currentTime,
+                                                  long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, VerifiedToken value, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    // 返回令牌对应的认证主体，令牌无效或用户已不存在时返回 null
+    public AuthenticatedUser verify(String token) {
+        String key = hash(token);
+        VerifiedToken cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return cached.principal();
+        }
+        Claims claims;
+        try {
+            claims = jwtTokenProvider.parseClaims(token);
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+        Long userId = claims.get(JwtTokenProvider.USER_ID_CLAIM, Long.class);
+        Long changeSeen = userId != null ? userChangedAt.get(userId) : null;
+        AuthenticatedUser principal = toPrincipal(claims, userId);
+        if (principal == null) {
+            return null;
+        }
+        cache.put(key, new VerifiedToken(principal, claims.getExpiration().getTime()));
+        // 构建期间用户信息恰好发生变更时，丢弃刚写入的条目
+        if (userId != null && !Objects.equals(changeSeen, userChangedAt.get(userId))) {
+            cache.invalidate(key);
+        }
+        return principal;
+    }
+
+    public void invalidate(String token) {
+        cache.invalidate(hash(token));
+    }
+
+    // 事务提交后处理，避免并发请求在提交前读到旧角色并重新缓存
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        userChangedAt.put(event.userId(), System.currentTimeMillis());
+        cache.asMap().values().removeIf(token -> event.userId().equals(token.principal().getId()));
+        log.debug("Invalidated cached tokens for user {}", event.userId());
+    }
+
+    private AuthenticatedUser toPrincipal(Claims claims, Long userId) {
+        if (userId == null) {
+            // 旧版本令牌没有用户 id，以数据库为准
+            return fromDatabase(userRepository.findByUsername(claims.getSubject()));
+        }
+        Optional<UserRepository.CredentialsStamp> stamp = userRepository.findCredentialsStamp(userId);
+        if (stamp.isEmpty()) {
+            // 用户已被删除
+            return null;
+        }
+        LocalDateTime changedAt = stamp.get().getCredentialsChangedAt();
+        // iat 只精确到秒，同一秒内的变更也按变更后签发处理
+        long issuedAt = claims.getIssuedAt() != null ? claims.getIssuedAt().getTime() : 0L;
+        if (changedAt != null && issuedAt <= toEpochMilli(changedAt)) {
+            // 签发后用户名、密码或角色已变更，以数据库为准
+            return fromDatabase(userRepository.findById(userId));
+        }
+        String roles = claims.get(JwtTokenProvider.ROLES_CLAIM, String.class);
+        List<SimpleGrantedAuthority> authorities = !StringUtils.hasText(roles) ? List.of()
+                : Arrays.stream(roles.split(","))
+                .map(SimpleGrantedAuthority::new)
+                .toList();
+        return new AuthenticatedUser(userId, claims.getSubject(), null, authorities);
+    }
+
+    private static AuthenticatedUser fromDatabase(Optional<User> user) {
+        return user.map(found -> {
+            AuthenticatedUser principal = AuthenticatedUser.of(found);
+            principal.eraseCredentials();
+            return principal;
+        }).orElse(null);
+    }
+
+    private static long toEpochMilli(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -8,6 +8,7 @@ import com.example.chatbot.exception.BusinessException;
 import com.example.chatbot.exception.ErrorCode;
 import com.example.chatbot.repository.UserRepository;
 import com.example.chatbot.security.JwtTokenProvider;
+import com.example.chatbot.security.VerifiedTokenCache;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
@@ -27,6 +28,7 @@ public class AuthService {
     private final JwtTokenProvider jwtTokenProvider;
     private final UserRepository userRepository;
     private final TokenBlacklistService tokenBlacklistService;
+    private final VerifiedTokenCache verifiedTokenCache;
     private final PasswordEncoder passwordEncoder;
 
     public AuthResponse authenticate(AuthRequest request) {
@@ -85,6 +87,7 @@ public class AuthService {
             long expirationTime = jwtTokenProvider.getExpirationTime(token);
             // 将 token 加入黑名单
             tokenBlacklistService.addToBlacklist(token, expirationTime);
+            verifiedTokenCache.invalidate(token);
         }
     }
 } 
\ No newline at end of file
@@ -0,0 +1,193 @@
+package com.example.chatbot.service;
+
+import com.example.chatbot.config.ChatProperties;
+import com.example.chatbot.entity.ChatMessage;
+import com.example.chatbot.repository.ChatMessageRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// 聊天消息异步批量写入：消息进入有界队列，由后台线程攒批后一次事务写入，
+// 配合序列预分配主键和 JDBC 批处理，把写库延迟移出响应路径
+@Component
+public class ChatMessageWriter {
+    private static final Logger log = LoggerFactory.getLogger(ChatMessageWriter.class);
+    // 读请求要求立即落库时放入队列的标记
+    private static final PendingWrite FLUSH = new PendingWrite(null, List.of(), null, null);
+
+    private final ChatMessageRepository chatMessageRepository;
+    private final ChatSessionService chatSessionService;
+    private final TransactionTemplate transactionTemplate;
+    private final ChatProperties.Persistence properties;
+    private final BlockingQueue<PendingWrite> queue;
+    // 用户 id -> 该用户最后一次排队写入的完成信号，读取前等待它即可读到自己刚写入的消息
+    private final Map<Long, CompletableFuture<Void>> lastWriteByUser = new ConcurrentHashMap<>();
+    private volatile boolean running;
+    private Thread worker;
+
+    private record PendingWrite(Long userId, List<ChatMessage> messages, Runnable onPersisted,
+                                CompletableFuture<Void> done) {
+    }
+
+    public ChatMessageWriter(ChatMessageRepository chatMessageRepository, ChatSessionService chatSessionService,
+                             TransactionTemplate transactionTemplate, ChatProperties chatProperties) {
+        this.chatMessageRepository = chatMessageRepository;
+        this.chatSessionService = chatSessionService;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = chatProperties.getPersistence();
+        this.queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!properties.isWriteBehind()) {
+            return;
+        }
+        running = true;
+        worker = new Thread(this::run, "chat-message-writer");
+        worker.start();
+    }
+
+    // 关闭时停止接收新消息，并在超时前把队列中的消息全部写完
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (worker == null) {
+            return;
+        }
+        running = false;
+        worker.join(properties.getFlushTimeout().toMillis());
+        if (worker.isAlive()) {
+            log.error("Chat message writer did not finish within {}, {} writes may be lost",
+                    properties.getFlushTimeout(), queue.size());
+        }
+    }
+
+    public boolean isEnabled() {
+        return running;
+    }
+
+    // 队列已满或已关闭时返回 false，由调用方改为同步写入
+    public boolean enqueue(Long userId, List<ChatMessage> messages, Runnable onPersisted) {
+        if (!running) {
+            return false;
+        }
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        if (!queue.offer(new PendingWrite(userId, messages, onPersisted, done))) {
+            return false;
+        }
+        lastWriteByUser.put(userId, done);
+        done.whenComplete((result, e) -> lastWriteByUser.remove(userId, done));
+        return true;
+    }
+
+    // 从数据库读取某用户的消息之前调用：如有未落库的消息，立即触发写入并等待完成
+    public void awaitUserWrites(Long userId) {
+        CompletableFuture<Void> last = lastWriteByUser.get(userId);
+        if (last == null || last.isDone()) {
+            return;
+        }
+        queue.offer(FLUSH);
+        try {
+            last.get(properties.getFlushTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            // 写入失败已在写入线程记录
+        } catch (TimeoutException e) {
+            log.warn("Pending chat messages of user {} not persisted within {}", userId, properties.getFlushTimeout());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        List<PendingWrite> batch = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingWrite first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null || first == FLUSH) {
+                    continue;
+                }
+                batch.add(first);
+                int size = first.messages().size();
+                // 攒够一批或等待超过最大延迟即写入，关闭时不再等待
+                long deadline = System.nanoTime() + properties.getMaxDelay().toNanos();
+                while (size < properties.getBatchSize() && running) {
+                    long remaining = deadline - System.nanoTime();
+                    PendingWrite next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (next == null || next == FLUSH) {
+                        break;
+                    }
+                    batch.add(next);
+                    size += next.messages().size();
+                }
+                if (!running) {
+                    // 关闭时把剩余消息并入本批
+                    queue.drainTo(batch);
+                    batch.removeIf(write -> write == FLUSH);
+                }
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Unexpected error in chat message writer", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<PendingWrite> batch) {
+        List<ChatMessage> messages = batch.stream()
+                .flatMap(write -> write.messages().stream())
+                .toList();
+        try {
+            transactionTemplate.executeWithoutResult(status -> save(messages));
+            batch.forEach(this::complete);
+            return;
+        } catch (RuntimeException e) {
+            log.warn("Batch write of {} chat messages failed, retrying one turn at a time", messages.size(), e);
+        }
+        // 整批失败时逐轮重试，只丢弃确实无法写入的消息
+        for (PendingWrite write : batch) {
+            write.messages().forEach(message -> message.setId(null));
+            try {
+                transactionTemplate.executeWithoutResult(status -> save(write.messages()));
+                complete(write);
+            } catch (RuntimeException e) {
+                log.error("Dropping {} chat messages of user {}", write.messages().size(), write.userId(), e);
+                write.done().completeExceptionally(e);
+            }
+        }
+    }
+
+    // 消息和会话摘要在同一事务中写入
+    private void save(List<ChatMessage> messages) {
+        chatMessageRepository.saveAll(messages);
+        chatSessionService.recordMessages(messages);
+    }
+
+    private void complete(PendingWrite write) {
+        try {
+            if (write.onPersisted() != null) {
+                write.onPersisted().run();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Post-persist callback failed", e);
+        }
+        write.done().complete(null);
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.chatbot.service;
+
+import com.example.chatbot.cache.SessionHistoryCache;
+import com.example.chatbot.cache.SimilarQuestionIndex;
+import com.example.chatbot.entity.ChatMessage;
+import com.example.chatbot.entity.User;
+import com.example.chatbot.repository.ChatMessageRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+@Service
+@RequiredArgsConstructor
+public class ChatPersistenceService {
+    private final ChatMessageRepository chatMessageRepository;
+    private final SessionHistoryCache sessionHistoryCache;
+    private final ChatMessageWriter chatMessageWriter;
+    private final ChatSessionService chatSessionService;
+    private final TransactionTemplate transactionTemplate;
+    private final JdbcTemplate jdbcTemplate;
+
+    // 主键由自增列改为序列分配，序列需从已有的最大 id 之后开始
+    @PostConstruct
+    public void alignIdSequence() {
+        jdbcTemplate.execute("SELECT setval('chat_messages_seq', m.max_id) " +
+                "FROM (SELECT MAX(id) AS max_id FROM chat_messages) m, chat_messages_seq s " +
+                "WHERE m.max_id > s.last_value");
+    }
+
+    // 模型生成完成后保存本轮问答，生成失败时不会留下没有回答的问题。
+    // 同步模式下两条消息在同一个短事务中写入；异步模式下先进入写入队列，落库后回调 onPersisted
+    public void saveTurn(String sessionId, User user, String modelId, LocalDateTime askedAt, String question,
+                         String answer, SimilarQuestionIndex.Probe probe, Consumer<ChatMessage> onPersisted) {
+        ChatMessage userMessage = new ChatMessage();
+        userMessage.setContent(question);
+        userMessage.setRole("user");
+        userMessage.setSessionId(sessionId);
+        userMessage.setUser(user);
+        userMessage.setModelId(modelId);
+        // 使用提问时间，保证与回答的先后顺序
+        userMessage.setCreatedAt(askedAt);
+
+        ChatMessage assistantMessage = new ChatMessage();
+        assistantMessage.setContent(answer);
+        assistantMessage.setRole("assistant");
+        assistantMessage.setSessionId(sessionId);
+        assistantMessage.setUser(user);
+        assistantMessage.setModelId(modelId);
+        assistantMessage.setCreatedAt(LocalDateTime.now());
+        if (probe != null) {
+            // 记录问题指纹，重启后可从数据库恢复近似问题索引
+            assistantMessage.setKnowledgeVersion(probe.knowledgeVersion());
+            assistantMessage.setQuestionFingerprint(probe.fingerprint());
+        }
+
+        List<ChatMessage> messages = List.of(userMessage, assistantMessage);
+        if (chatMessageWriter.enqueue(user.getId(), messages, () -> onPersisted.accept(assistantMessage))) {
+            // 先写入会话缓存，下一轮对话无需等待落库即可读到本轮消息
+            messages.forEach(sessionHistoryCache::append);
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            chatMessageRepository.saveAll(messages);
+            chatSessionService.recordMessages(messages);
+            messages.forEach(sessionHistoryCache::append);
+        });
+        onPersisted.accept(assistantMessage);
+    }
+
+    // 从数据库读取某用户的消息前调用，保证能读到自己刚写入的消息
+    public void awaitPendingWrites(User user) {
+        chatMessageWriter.awaitUserWrites(user.getId());
+    }
+}
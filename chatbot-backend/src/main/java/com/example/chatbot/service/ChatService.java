@@ -1,106 +1,171 @@
 package com.example.chatbot.service;
 
+import com.example.chatbot.cache.ResponseCache;
+import com.example.chatbot.cache.SessionHistoryCache;
+import com.example.chatbot.cache.SimilarQuestionIndex;
+import com.example.chatbot.config.ChatProperties;
 import com.example.chatbot.config.ModelProperties;
 import com.example.chatbot.dto.ChatRequest;
 import com.example.chatbot.dto.ChatResponse;
+import com.example.chatbot.dto.ChatSessionResponse;
+import com.example.chatbot.dto.CursorPageResponse;
 import com.example.chatbot.entity.ChatMessage;
-import com.example.chatbot.entity.KnowledgeBase;
 import com.example.chatbot.entity.User;
+import com.example.chatbot.exception.BusinessException;
+import com.example.chatbot.exception.ErrorCode;
+import com.example.chatbot.inference.AdmissionController;
+import com.example.chatbot.inference.ModelRouter;
+import com.example.chatbot.inference.RequestCoalescer;
+import com.example.chatbot.inference.ThinkingFilter;
+import com.example.chatbot.metrics.ChatMetrics;
+import com.example.chatbot.inference.OllamaAdminClient;
+import com.example.chatbot.prompt.AssembledPrompt;
+import com.example.chatbot.prompt.PromptAssembler;
+import com.example.chatbot.prompt.TokenEstimator;
 import com.example.chatbot.repository.ChatMessageRepository;
 import com.example.chatbot.repository.UserRepository;
+import com.example.chatbot.retrieval.Passage;
+import com.example.chatbot.security.AuthenticatedUser;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import lombok.RequiredArgsConstructor;
-import org.springframework.ai.chat.client.ChatClient;
-import org.springframework.ai.chat.messages.AssistantMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.ai.chat.messages.Message;
-import org.springframework.ai.chat.messages.SystemMessage;
-import org.springframework.ai.chat.messages.UserMessage;
 import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.ollama.api.OllamaOptions;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Limit;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class ChatService {
     private final ChatMessageRepository chatMessageRepository;
-    private final ChatClient chatClient;
     private final KnowledgeService knowledgeService;
     private final ModelProperties modelProperties;
     private final UserRepository userRepository;
+    private final ChatProperties chatProperties;
+    private final Scheduler chatStreamScheduler;
+    private final PromptAssembler promptAssembler;
+    private final ResponseCache responseCache;
+    private final SimilarQuestionIndex similarQuestionIndex;
+    private final SessionHistoryCache sessionHistoryCache;
+    private final ChatPersistenceService chatPersistenceService;
+    private final ChatSessionService chatSessionService;
+    private final ConversationSummaryService conversationSummaryService;
+    private final ModelRouter modelRouter;
+    private final AdmissionController admissionController;
+    private final RequestCoalescer requestCoalescer;
+    private final ChatMetrics chatMetrics;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private static final Logger log = LoggerFactory.getLogger(ChatService.class);
+    private static final String SYSTEM_PROMPT = "你是一个专业的客服助手，请根据以下知识库内容回答用户问题。如果知识库中没有相关信息，请明确告知用户。\n\n";
 
     private User getCurrentUser() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication.getPrincipal() instanceof AuthenticatedUser principal && principal.getId() != null) {
+            // 认证主体已带有用户 id，只取实体引用，不查询数据库
+            return userRepository.getReferenceById(principal.getId());
+        }
         String username = authentication.getName();
         return userRepository.findByUsername(username)
                 .orElseThrow(() -> new IllegalArgumentException("User not found"));
     }
 
-    @Transactional
+    // 不在事务中执行：模型调用可能持续数分钟，期间不占用数据库连接，只在生成完成后用一个短事务保存
     public ChatResponse processMessage(ChatRequest request) {
+        long startedAt = System.nanoTime();
         User currentUser = getCurrentUser();
         String sessionId = getOrCreateSessionId(request.getSessionId());
         String modelId = request.getModelId() != null ? request.getModelId() : "qwen3";
-        
+        LocalDateTime askedAt = LocalDateTime.now();
+        // 先校验模型，指标只使用已配置的模型 id 作为标签
+        ModelProperties.ModelOption modelOption = getModelOption(modelId);
+        long stageStart = chatMetrics.recordStage(ChatMetrics.Stage.USER, modelId, startedAt);
+
         // 清理用户消息
         String cleanedMessage = cleanMessage(request.getMessage());
-        saveUserMessage(cleanedMessage, sessionId, currentUser);
-        
-        // 搜索相关知识库内容
-        List<KnowledgeBase> relevantDocs = knowledgeService.searchByKeyword(cleanedMessage);
-        StringBuilder contextBuilder = new StringBuilder();
-        if (!relevantDocs.isEmpty()) {
-            contextBuilder.append("相关文档：\n");
-            for (KnowledgeBase doc : relevantDocs) {
-                contextBuilder.append("标题：").append(doc.getTitle()).append("\n");
-                contextBuilder.append("内容：").append(doc.getContent()).append("\n\n");
-            }
-        }
 
-        // 构建消息上下文
-        List<Message> messages = buildMessageContext(sessionId);
-        
-        // 如果有相关文档，添加到用户消息中
-        if (!contextBuilder.isEmpty()) {
-            String enhancedMessage = cleanedMessage + "\n\n" + contextBuilder;
-            messages.add(new UserMessage(enhancedMessage));
+        // 检索知识并加载历史消息
+        List<Passage> passages = knowledgeService.search(cleanedMessage);
+        chatMetrics.recordRetrieval(passages.size());
+        stageStart = chatMetrics.recordStage(ChatMetrics.Stage.RETRIEVAL, modelId, stageStart);
+        List<ChatMessage> history = sessionHistoryCache.recent(sessionId, currentUser);
+        ConversationSummaryService.SessionSummary summary = conversationSummaryService.current(sessionId, currentUser);
+        List<ChatMessage> recentHistory = summary.unsummarized(history);
+        stageStart = chatMetrics.recordStage(ChatMetrics.Stage.HISTORY, modelId, stageStart);
+        CacheLookup cacheLookup = cacheLookupOf(cleanedMessage, currentUser, modelId, modelOption, passages, history);
+        String cachedResponse = findCachedResponse(cacheLookup);
+        stageStart = chatMetrics.recordStage(ChatMetrics.Stage.CACHE, modelId, stageStart);
+
+        String cleanedResponse;
+        if (cachedResponse != null) {
+            cleanedResponse = cachedResponse;
         } else {
-            messages.add(new UserMessage(cleanedMessage));
-        }
+            List<Message> messages = buildMessageContext(cleanedMessage, passages, summary, recentHistory,
+                    modelId, modelOption);
+            stageStart = chatMetrics.recordStage(ChatMetrics.Stage.PROMPT, modelId, stageStart);
 
-        // 获取模型配置
-        ModelProperties.ModelOption modelOptions = modelProperties.getOptions().get(modelId);
-        if (modelOptions == null) {
-            throw new IllegalArgumentException("Invalid model ID: " + modelId);
+            // 获取模型配置
+            ChatOptions options = buildChatOptions(modelOption);
+
+            // 调用AI模型，失败时异常直接抛出，此时数据库中没有任何改动；排队已满或超时时返回 429。
+            // 同时到达的相同请求只生成一次
+            String aiResponse = requestCoalescer.call(coalescingKeyOf(modelId, cacheLookup, messages), () -> {
+                try (AdmissionController.Permit permit = admissionController.acquire(modelId, currentUser.getId(),
+                        AdmissionController.Priority.INTERACTIVE)) {
+                    return modelRouter.call(modelId, client -> client.prompt()
+                            .messages(messages)
+                            .options(options)
+                            .call()
+                            .content());
+                }
+            });
+            stageStart = chatMetrics.recordStage(ChatMetrics.Stage.MODEL, modelId, stageStart);
+            // 同步调用拿不到逐个 token 的时间，只计数不计算速度
+            chatMetrics.recordGeneration(modelId, aiResponse == null ? 0 : TokenEstimator.estimate(aiResponse), 0);
+
+            // 清理AI响应
+            cleanedResponse = ThinkingFilter.strip(aiResponse == null ? "" : aiResponse);
+            if (cleanedResponse.isEmpty()) {
+                // 输出在思考过程中被截断（<think> 未闭合）时没有回答部分，本轮按失败处理，不保存空回答
+                throw new BusinessException(ErrorCode.MODEL_NO_ANSWER);
+            }
+            stageStart = chatMetrics.recordStage(ChatMetrics.Stage.CLEANUP, modelId, stageStart);
         }
 
-        ChatOptions options = ChatOptions.builder()
-                .model(modelOptions.getModel())
-                .temperature(modelOptions.getTemperature())
-                .topP(modelOptions.getTopP())
-                .topK(modelOptions.getTopK())
-                .build();
-
-        // 调用AI模型
-        String aiResponse = chatClient.prompt()
-                .messages(messages)
-                .options(options)
-                .call()
-                .content();
-
-        // 清理AI响应
-        String cleanedResponse = cleanAiResponse(aiResponse);
-
-        // 保存AI响应
-        saveAssistantMessage(cleanedResponse, sessionId, currentUser);
+        // 保存本轮问答，新生成的回答登记到缓存
+        saveTurn(sessionId, currentUser, modelId, askedAt, cleanedMessage, cleanedResponse,
+                cachedResponse == null ? cacheLookup : CacheLookup.NONE, recentHistory.size() + 2);
+        chatMetrics.recordStage(ChatMetrics.Stage.PERSIST, modelId, stageStart);
+        chatMetrics.recordRequest(modelId, "sync", cachedResponse != null, startedAt);
 
         return ChatResponse.builder()
                 .message(cleanedResponse)
@@ -109,6 +174,11 @@ public class ChatService {
                 .build();
     }
 
+    // 至少有一个可用节点的模型
+    public List<String> getAvailableModels() {
+        return modelRouter.availableModels();
+    }
+
     private String getOrCreateSessionId(String sessionId) {
         if (sessionId == null || sessionId.isEmpty()) {
             return UUID.randomUUID().toString();
@@ -116,84 +186,204 @@ public class ChatService {
         return sessionId;
     }
 
-    private void saveUserMessage(String content, String sessionId, User user) {
-        ChatMessage userMessage = new ChatMessage();
-        userMessage.setContent(content);
-        userMessage.setRole("user");
-        userMessage.setSessionId(sessionId);
-        userMessage.setUser(user);
-        chatMessageRepository.save(userMessage);
+    // 回答已经生成，保存失败时仍然返回给用户，只记录错误且不登记缓存。
+    // unsummarizedCount 为保存后会话中尚未进入摘要的消息数，达到阈值时在后台生成摘要
+    private void saveTurn(String sessionId, User user, String modelId, LocalDateTime askedAt,
+                          String question, String answer, CacheLookup cacheLookup, int unsummarizedCount) {
+        boolean cacheable = !answer.isBlank();
+        try {
+            // 近似问题索引需要回答的消息 id，落库后再登记
+            chatPersistenceService.saveTurn(sessionId, user, modelId, askedAt, question, answer,
+                    cacheLookup.probe(), saved -> {
+                        if (cacheable && cacheLookup.probe() != null) {
+                            similarQuestionIndex.add(cacheLookup.probe(), saved.getId());
+                        }
+                        conversationSummaryService.onTurnSaved(sessionId, user, unsummarizedCount);
+                    });
+        } catch (DataAccessException e) {
+            log.error("Failed to save chat turn for session {}", sessionId, e);
+            return;
+        }
+        if (cacheable && cacheLookup.key() != null) {
+            responseCache.put(cacheLookup.key(), answer);
+        }
     }
 
-    private void saveAssistantMessage(String content, String sessionId, User user) {
-        ChatMessage assistantMessage = new ChatMessage();
-        assistantMessage.setContent(content);
-        assistantMessage.setRole("assistant");
-        assistantMessage.setSessionId(sessionId);
-        assistantMessage.setUser(user);
-        chatMessageRepository.save(assistantMessage);
+    // 只有会话中的第一个问题与上下文无关，其回答可以缓存复用
+    private CacheLookup cacheLookupOf(String question, User user, String modelId,
+                                      ModelProperties.ModelOption modelOption,
+                                      List<Passage> passages, List<ChatMessage> history) {
+        if (!history.isEmpty()) {
+            return CacheLookup.NONE;
+        }
+        ResponseCache.Key key = responseCache.isEnabled()
+                ? responseCache.keyOf(question, modelId, modelOption, passages)
+                : null;
+        return new CacheLookup(key, similarQuestionIndex.probe(user.getId(), modelId, question));
     }
 
-    private List<Message> buildMessageContext(String sessionId) {
-        // 获取最近的10条消息
-        List<ChatMessage> history = chatMessageRepository.findLast10BySessionIdAndUserOrderByCreatedAtDesc(sessionId, getCurrentUser());
-        // 反转列表以保持时间顺序
-        Collections.reverse(history);
-
-        // 构建对话上下文
-        List<Message> messages = new ArrayList<>();
-        
-        // 添加系统提示，包含知识库信息
-        String systemPrompt = "你是一个专业的客服助手，请根据以下知识库内容回答用户问题。如果知识库中没有相关信息，请明确告知用户。\n\n";
-        messages.add(new SystemMessage(systemPrompt));
-
-        // 添加历史消息
-        for (ChatMessage msg : history) {
-            if ("user".equals(msg.getRole())) {
-                messages.add(new UserMessage(msg.getContent()));
-            } else {
-                messages.add(new AssistantMessage(msg.getContent()));
+    // 先查完全相同的问题，再查近似重复的问题
+    private String findCachedResponse(CacheLookup lookup) {
+        if (lookup.key() != null) {
+            String cached = responseCache.get(lookup.key());
+            if (cached != null) {
+                chatMetrics.recordCacheLookup(ChatMetrics.CacheResult.EXACT);
+                return cached;
+            }
+        }
+        if (lookup.probe() == null) {
+            if (lookup.key() != null) {
+                chatMetrics.recordCacheLookup(ChatMetrics.CacheResult.MISS);
             }
+            return null;
+        }
+        Long messageId = similarQuestionIndex.findAnswer(lookup.probe());
+        if (messageId == null) {
+            chatMetrics.recordCacheLookup(ChatMetrics.CacheResult.MISS);
+            return null;
+        }
+        Optional<ChatMessage> answer = chatMessageRepository.findById(messageId);
+        if (answer.isEmpty()) {
+            // 所在会话已被删除
+            similarQuestionIndex.remove(messageId);
+            chatMetrics.recordCacheLookup(ChatMetrics.CacheResult.MISS);
+            return null;
         }
+        chatMetrics.recordCacheLookup(ChatMetrics.CacheResult.SIMILAR);
+        log.debug("Reusing answer {} for near-duplicate question", messageId);
+        // 近似命中的回答来自该用户自己的历史会话，不写入各用户共享的精确缓存
+        return answer.get().getContent();
+    }
 
-        return messages;
+    // history 只包含摘要之后的消息，摘要并入系统提示
+    private List<Message> buildMessageContext(String question, List<Passage> passages,
+                                              ConversationSummaryService.SessionSummary summary,
+                                              List<ChatMessage> history, String modelId,
+                                              ModelProperties.ModelOption modelOption) {
+        String systemPrompt = summary.isEmpty()
+                ? SYSTEM_PROMPT
+                : SYSTEM_PROMPT + "此前对话摘要：\n" + summary.text() + "\n\n";
+        // 按模型上下文窗口裁剪检索段落和历史消息
+        AssembledPrompt prompt = promptAssembler.assemble(systemPrompt, question, passages, history, modelOption);
+        log.debug("Prompt assembled: ~{} tokens, {}/{} passages, {}/{} history messages",
+                prompt.estimatedTokens(), prompt.passageCount(), passages.size(),
+                prompt.historyCount(), history.size());
+        chatMetrics.recordPrompt(modelId, prompt.estimatedTokens());
+        return prompt.messages();
     }
 
-    private String cleanAiResponse(String response) {
-        if (response.contains("<think>")) {
-            int startIndex = response.indexOf("<think>");
-            int endIndex = response.indexOf("</think>");
-            if (startIndex != -1 && endIndex != -1) {
-                return response.substring(endIndex + 8).trim();
-            }
+    // 会话首个问题使用回答缓存的键（规范化的问题、检索段落和模型参数），其余按完整提示词匹配
+    private Object coalescingKeyOf(String modelId, CacheLookup cacheLookup, List<Message> messages) {
+        if (cacheLookup.key() != null) {
+            return cacheLookup.key();
         }
-        return response;
+        return new PromptKey(modelId, messages.stream()
+                .map(message -> message.getMessageType() + ":" + message.getText())
+                .toList());
     }
 
-    public List<ChatResponse> getHistory(String sessionId) {
+    // 键集分页读取历史消息，页内按时间正序。未指定游标时返回最新一页；
+    // before 向更早翻页，after 读取游标之后的新消息，nextCursor 沿同一方向继续
+    public CursorPageResponse<ChatResponse> getHistory(String sessionId, String before, String after, Integer limit) {
+        if (before != null && after != null) {
+            throw new BusinessException(ErrorCode.INVALID_PARAMETER, "before 和 after 不能同时指定");
+        }
+        PageCursor beforeCursor = PageCursor.decode(before);
+        PageCursor afterCursor = PageCursor.decode(after);
+        int pageSize = PageCursor.pageSize(limit, chatProperties.getPaging());
         User currentUser = getCurrentUser();
-        List<ChatMessage> messages = chatMessageRepository.findBySessionIdAndUserOrderByCreatedAtAsc(sessionId, currentUser);
-        return messages.stream()
-                .map(msg -> ChatResponse.builder()
-                        .message(msg.getContent())
-                        .sessionId(msg.getSessionId())
-                        .role(msg.getRole())
-                        .build())
-                .collect(Collectors.toList());
+        chatPersistenceService.awaitPendingWrites(currentUser);
+
+        // 多取一行判断是否还有下一页
+        Limit fetch = Limit.of(pageSize + 1);
+        List<ChatMessage> messages;
+        if (afterCursor != null) {
+            messages = chatMessageRepository.findPageAfter(sessionId, currentUser,
+                    afterCursor.timestamp(), afterCursor.id(), fetch);
+        } else if (beforeCursor != null) {
+            messages = chatMessageRepository.findPageBefore(sessionId, currentUser,
+                    beforeCursor.timestamp(), beforeCursor.id(), fetch);
+        } else {
+            messages = chatMessageRepository.findBySessionIdAndUserOrderByCreatedAtDescIdDesc(sessionId, currentUser, fetch);
+        }
+        String nextCursor = null;
+        if (messages.size() > pageSize) {
+            messages = messages.subList(0, pageSize);
+            ChatMessage last = messages.get(pageSize - 1);
+            nextCursor = new PageCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+        List<ChatResponse> items = new ArrayList<>(messages.stream()
+                .map(msg -> toHistoryResponse(msg.getRole(), msg.getContent(), msg.getModelId(), msg.getCreatedAt(), sessionId))
+                .toList());
+        if (afterCursor == null) {
+            // 向前翻页按倒序查询，返回前恢复为正序
+            Collections.reverse(items);
+        }
+        return CursorPageResponse.<ChatResponse>builder()
+                .items(items)
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    // 以 NDJSON 逐行输出整个会话，数据库按批读取，不在内存中保留整个会话
+    public StreamingResponseBody streamHistory(String sessionId) {
+        User currentUser = getCurrentUser();
+        chatPersistenceService.awaitPendingWrites(currentUser);
+        // 每行一个 JSON 对象，逐行不刷新，由 Servlet 输出缓冲区决定何时发送
+        ObjectWriter writer = objectMapper.writerFor(ChatResponse.class)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .withRootValueSeparator("");
+        // 只读事务：Hibernate 不做脏检查和刷新，PostgreSQL 驱动在事务内才会按 fetch size 分批读取
+        TransactionTemplate readOnlyTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        readOnlyTransaction.setReadOnly(true);
+        return out -> readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<ChatMessageRepository.HistoryRow> rows =
+                         chatMessageRepository.streamBySessionIdAndUser(sessionId, currentUser);
+                 JsonGenerator generator = writer.createGenerator(out)) {
+                Iterator<ChatMessageRepository.HistoryRow> iterator = rows.iterator();
+                while (iterator.hasNext()) {
+                    ChatMessageRepository.HistoryRow row = iterator.next();
+                    writer.writeValue(generator, toHistoryResponse(row.getRole(), row.getContent(),
+                            row.getModelId(), row.getCreatedAt(), sessionId));
+                    generator.writeRaw('\n');
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private ChatResponse toHistoryResponse(String role, String content, String modelId, LocalDateTime createdAt,
+                                           String sessionId) {
+        return ChatResponse.builder()
+                .message(content)
+                .sessionId(sessionId)
+                .role(role)
+                .modelId(modelId)
+                .createdAt(createdAt)
+                .build();
     }
 
-    public List<String> getAllSessions() {
+    // 按最后活跃时间倒序分页列出会话
+    public CursorPageResponse<ChatSessionResponse> getSessions(String cursor, Integer limit) {
         User currentUser = getCurrentUser();
-        return chatMessageRepository.findDistinctSessionIdByUser(currentUser);
+        chatPersistenceService.awaitPendingWrites(currentUser);
+        return chatSessionService.listSessions(currentUser, cursor, limit);
     }
 
     @Transactional
     public void deleteSession(String sessionId) {
         User currentUser = getCurrentUser();
+        // 先让排队中的消息落库，避免删除后又被写入
+        chatPersistenceService.awaitPendingWrites(currentUser);
         chatMessageRepository.deleteBySessionIdAndUser(sessionId, currentUser);
+        chatSessionService.deleteSession(sessionId, currentUser);
+        sessionHistoryCache.evict(sessionId, currentUser);
+        conversationSummaryService.evict(sessionId, currentUser);
     }
 
-    private String cleanMessage(String message) {
+    static String cleanMessage(String message) {
         if (message == null) {
             return "";
         }
@@ -203,74 +393,210 @@ public class ChatService {
                 .replaceAll("\\s+", " "); // 将中间的多个空白字符替换为单个空格
     }
 
+    private ModelProperties.ModelOption getModelOption(String modelId) {
+        ModelProperties.ModelOption modelOption = modelProperties.getOptions().get(modelId);
+        if (modelOption == null) {
+            throw new IllegalArgumentException("Invalid model ID: " + modelId);
+        }
+        return modelOption;
+    }
+
+    private ChatOptions buildChatOptions(ModelProperties.ModelOption modelOption) {
+        OllamaOptions.Builder builder = OllamaOptions.builder()
+                .model(modelOption.getModel())
+                .temperature(modelOption.getTemperature())
+                .topP(modelOption.getTopP())
+                .topK(modelOption.getTopK())
+                .numCtx(modelOption.getContextWindow());
+        ModelProperties.Lifecycle lifecycle = modelProperties.getLifecycle();
+        if (lifecycle.isEnabled()) {
+            // 驻留时间由生命周期管理统一控制，空闲模型由其主动卸载
+            builder.keepAlive(OllamaAdminClient.keepAliveOf(lifecycle.getKeepAlive()));
+        }
+        return builder.build();
+    }
+
     public void processMessageStream(String sessionId, String message, String modelId, SseEmitter emitter) {
+        long startedAt = System.nanoTime();
+        // 模型排队已满时在建立 SSE 连接前直接返回 429
+        admissionController.checkCapacity(modelId != null ? modelId : "qwen3", getCurrentUser().getId());
+        if (!chatProperties.getStream().isAsync()) {
+            streamMessage(sessionId, message, modelId, emitter, null, startedAt);
+            return;
+        }
+        // 客户端断开、超时或连接出错时取消订阅：退出排队、释放并发名额并关闭到 Ollama 的连接。
+        // 正常结束后的回调对已完成的订阅无影响
+        Disposable.Swap subscription = Disposables.swap();
+        emitter.onCompletion(subscription::dispose);
+        emitter.onTimeout(subscription::dispose);
+        emitter.onError(e -> subscription.dispose());
+        // 在独立线程池中处理，立即释放Servlet请求线程
+        try {
+            chatStreamScheduler.schedule(() -> streamMessage(sessionId, message, modelId, emitter, subscription,
+                    startedAt));
+        } catch (RejectedExecutionException e) {
+            sendError(emitter, e);
+        }
+    }
+
+    // subscription 为 null 时在当前线程同步完成，客户端断开在下一次发送失败时发现
+    private void streamMessage(String sessionId, String message, String modelId, SseEmitter emitter,
+                               Disposable.Swap subscription, long startedAt) {
+        boolean async = subscription != null;
         try {
             // 获取或创建会话ID
             String currentSessionId = getOrCreateSessionId(sessionId);
             String currentModelId = modelId != null ? modelId : "qwen3";
+            User currentUser = getCurrentUser();
+            String cleanedMessage = cleanMessage(message);
+            ModelProperties.ModelOption modelOption = getModelOption(currentModelId);
+            LocalDateTime askedAt = LocalDateTime.now();
+            long stageStart = chatMetrics.recordStage(ChatMetrics.Stage.USER, currentModelId, startedAt);
+
+            // 检索知识并加载历史消息
+            List<Passage> passages = knowledgeService.search(cleanedMessage);
+            chatMetrics.recordRetrieval(passages.size());
+            stageStart = chatMetrics.recordStage(ChatMetrics.Stage.RETRIEVAL, currentModelId, stageStart);
+            List<ChatMessage> history = sessionHistoryCache.recent(currentSessionId, currentUser);
+            ConversationSummaryService.SessionSummary summary =
+                    conversationSummaryService.current(currentSessionId, currentUser);
+            List<ChatMessage> recentHistory = summary.unsummarized(history);
+            stageStart = chatMetrics.recordStage(ChatMetrics.Stage.HISTORY, currentModelId, stageStart);
+            CacheLookup cacheLookup = cacheLookupOf(cleanedMessage, currentUser, currentModelId, modelOption,
+                    passages, history);
+            String cachedResponse = findCachedResponse(cacheLookup);
+            stageStart = chatMetrics.recordStage(ChatMetrics.Stage.CACHE, currentModelId, stageStart);
+            StreamTurn turn = new StreamTurn(currentSessionId, currentUser, currentModelId, askedAt, cleanedMessage,
+                    recentHistory.size() + 2);
+
+            if (cachedResponse != null) {
+                // 命中缓存，整段回答一次性发送
+                sendEvent(emitter, "message", cachedResponse);
+                completeStream(cachedResponse, turn, CacheLookup.NONE, emitter);
+                chatMetrics.recordStage(ChatMetrics.Stage.PERSIST, currentModelId, stageStart);
+                chatMetrics.recordRequest(currentModelId, "stream", true, startedAt);
+                return;
+            }
 
-            // 保存用户消息
-            saveUserMessage(message, currentSessionId, getCurrentUser());
-
-            // 构建消息上下文
-            List<Message> messages = buildMessageContext(currentSessionId);
+            List<Message> messages = buildMessageContext(cleanedMessage, passages, summary, recentHistory,
+                    currentModelId, modelOption);
+            long promptDone = chatMetrics.recordStage(ChatMetrics.Stage.PROMPT, currentModelId, stageStart);
 
             // 获取模型配置
-            ModelProperties.ModelOption modelOptions = modelProperties.getOptions().get(currentModelId);
-            if (modelOptions == null) {
-                throw new IllegalArgumentException("Invalid model ID: " + currentModelId);
+            ChatOptions options = buildChatOptions(modelOption);
+
+            // 模型每生成一个片段就立即转发给客户端，同时拼接完整回复；排队等待期间不占用线程。
+            // 同时到达的相同请求共享同一个片段流
+            StringBuilder fullResponse = new StringBuilder();
+            Flux<String> tokens = requestCoalescer.stream(coalescingKeyOf(currentModelId, cacheLookup, messages),
+                    () -> admissionController.acquireAsync(currentModelId, currentUser.getId(),
+                                    AdmissionController.Priority.INTERACTIVE)
+                            .flatMapMany(permit -> modelRouter.stream(currentModelId, client -> client.prompt()
+                                            .messages(messages)
+                                            .options(options)
+                                            .stream()
+                                            .content())
+                                    .doFinally(signal -> permit.release())));
+            if (async) {
+                // 发送和持久化切回业务线程池，避免阻塞HTTP客户端的IO线程
+                tokens = tokens.publishOn(chatStreamScheduler);
             }
+            // 思考过程在片段流中逐段剥离，思考结束后第一个回答片段立即发出；只有回答部分被保存和缓存。
+            // 片段合并成较大的帧后再写出，客户端读取缓慢时写出阻塞，上游随之暂停拉取
+            boolean sendReasoning = chatProperties.getStream().getReasoning() == ChatProperties.Reasoning.EVENT;
+            SseFrameBuffer frames = new SseFrameBuffer(chatProperties.getStream().getFrame(),
+                    (event, data) -> sendEvent(emitter, event, data), chatStreamScheduler);
+            ThinkingFilter thinkingFilter = new ThinkingFilter(new ThinkingFilter.Listener() {
+                @Override
+                public void onAnswer(String text) {
+                    fullResponse.append(text);
+                    frames.append("message", text);
+                }
 
-            ChatOptions options = ChatOptions.builder()
-                    .model(modelOptions.getModel())
-                    .temperature(modelOptions.getTemperature())
-                    .topP(modelOptions.getTopP())
-                    .topK(modelOptions.getTopK())
-                    .build();
-
-            // 发送流式响应
-            String response = chatClient.prompt()
-                    .messages(messages)
-                    .options(options)
-                    .call()
-                    .content();
-
-            // 将响应分块发送
-            // 每次发送一个字符，模拟流式效果
-            for (char c : response.toCharArray()) {
-                try {
-                    emitter.send(SseEmitter.event()
-                            .name("message")
-                            .data(String.valueOf(c)));
-                    Thread.sleep(10); // 添加小延迟使流式效果更明显
-                } catch (IOException | InterruptedException e) {
-                    try {
-                        emitter.send(SseEmitter.event()
-                                .name("error")
-                                .data(e.getMessage()));
-                    } catch (IOException ex) {
-                        // 忽略发送错误消息时的异常
+                @Override
+                public void onReasoning(String text) {
+                    if (sendReasoning) {
+                        frames.append("reasoning", text);
                     }
                 }
+            });
+            // 首个片段延迟和生成速度按每个订阅者记录，合并的请求各自计入
+            ChatMetrics.StreamRecorder recorder = chatMetrics.stream(currentModelId, startedAt);
+            Mono<Void> pipeline = tokens
+                    .doOnSubscribe(s -> recorder.onSubscribe())
+                    .doOnNext(token -> {
+                        recorder.onToken();
+                        thinkingFilter.accept(token);
+                    })
+                    .doOnCancel(() -> log.debug("Stream for session {} cancelled by client after {} characters",
+                            currentSessionId, fullResponse.length()))
+                    .doFinally(signal -> recorder.onFinish())
+                    .then(Mono.<Void>fromRunnable(() -> {
+                        long modelDone = chatMetrics.recordStage(ChatMetrics.Stage.MODEL, currentModelId, promptDone);
+                        thinkingFilter.finish();
+                        frames.flush();
+                        if (fullResponse.isEmpty()) {
+                            // 输出在思考过程中被截断时没有回答部分，发送 error 事件，问题和回答都不保存
+                            throw new BusinessException(ErrorCode.MODEL_NO_ANSWER);
+                        }
+                        completeStream(fullResponse.toString(), turn, cacheLookup, emitter);
+                        chatMetrics.recordStage(ChatMetrics.Stage.PERSIST, currentModelId, modelDone);
+                        chatMetrics.recordRequest(currentModelId, "stream", false, startedAt);
+                    }))
+                    .doFinally(signal -> frames.close());
+
+            if (async) {
+                // 非阻塞订阅，等待模型输出期间不占用任何线程；客户端已断开时立即取消
+                subscription.update(pipeline.subscribe(null, e -> sendError(emitter, e)));
+            } else {
+                pipeline.block();
             }
+        } catch (Exception e) {
+            sendError(emitter, e);
+        }
+    }
+
+    // response 已经过 ThinkingFilter，只含回答部分
+    private void completeStream(String response, StreamTurn turn, CacheLookup cacheLookup, SseEmitter emitter) {
+        // 保存本轮问答；流式生成中途失败时走 sendError，问题和回答都不保存
+        saveTurn(turn.sessionId(), turn.user(), turn.modelId(), turn.askedAt(), turn.question(),
+                response.stripTrailing(), cacheLookup, turn.unsummarizedCount());
 
-            // 保存完整的助手回复
-            saveAssistantMessage(response, currentSessionId, getCurrentUser());
+        // 完成流式响应
+        sendEvent(emitter, "done", "[DONE]");
+        emitter.complete();
+    }
 
-            // 完成流式响应
+    private void sendError(SseEmitter emitter, Throwable e) {
+        try {
             emitter.send(SseEmitter.event()
-                    .name("done")
-                    .data("[DONE]"));
-            emitter.complete();
+                    .name("error")
+                    .data(String.valueOf(e.getMessage())));
+        } catch (IOException | IllegalStateException ex) {
+            // 忽略发送错误消息时的异常
+        }
+        emitter.complete();
+    }
 
-        } catch (Exception e) {
-            try {
-                emitter.send(SseEmitter.event()
-                        .name("error")
-                        .data(e.getMessage()));
-            } catch (IOException ex) {
-                // 忽略发送错误消息时的异常
-            }
+    private void sendEvent(SseEmitter emitter, String name, String data) {
+        try {
+            emitter.send(SseEmitter.event()
+                    .name(name)
+                    .data(data));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
     }
+
+    private record StreamTurn(String sessionId, User user, String modelId, LocalDateTime askedAt, String question,
+                              int unsummarizedCount) {
+    }
+
+    private record PromptKey(String modelId, List<String> messages) {
+    }
+
+    // 会话首个问题的缓存键和指纹；后续问题依赖上下文，两者均为 null
+    private record CacheLookup(ResponseCache.Key key, SimilarQuestionIndex.Probe probe) {
+        static final CacheLookup NONE = new CacheLookup(null, null);
+    }
 } 
\ No newline at end of file
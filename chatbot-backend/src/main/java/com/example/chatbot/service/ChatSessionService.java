@@ -0,0 +1,106 @@
+package com.example.chatbot.service;
+
+import com.example.chatbot.config.ChatProperties;
+import com.example.chatbot.dto.ChatSessionResponse;
+import com.example.chatbot.dto.CursorPageResponse;
+import com.example.chatbot.entity.ChatMessage;
+import com.example.chatbot.entity.ChatSession;
+import com.example.chatbot.entity.User;
+import com.example.chatbot.repository.ChatSessionRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+@RequiredArgsConstructor
+public class ChatSessionService {
+    private static final Logger log = LoggerFactory.getLogger(ChatSessionService.class);
+    private static final int TITLE_LENGTH = 50;
+
+    private final ChatSessionRepository chatSessionRepository;
+    private final ChatProperties chatProperties;
+
+    // 升级前只有消息表，会话表为空时由已有消息补齐
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfill() {
+        if (chatSessionRepository.count() > 0) {
+            return;
+        }
+        int created = chatSessionRepository.backfillFromMessages(TITLE_LENGTH);
+        if (created > 0) {
+            log.info("Created {} chat sessions from existing messages", created);
+        }
+    }
+
+    // 在写入消息的同一事务中调用，按会话合并后每个会话只执行一次 upsert
+    @Transactional
+    public void recordMessages(List<ChatMessage> messages) {
+        Map<String, List<ChatMessage>> bySession = new LinkedHashMap<>();
+        for (ChatMessage message : messages) {
+            String key = message.getUser().getId() + ":" + message.getSessionId();
+            bySession.computeIfAbsent(key, k -> new ArrayList<>()).add(message);
+        }
+        for (List<ChatMessage> sessionMessages : bySession.values()) {
+            ChatMessage first = sessionMessages.get(0);
+            ChatMessage last = sessionMessages.get(sessionMessages.size() - 1);
+            chatSessionRepository.upsertActivity(first.getSessionId(), first.getUser().getId(),
+                    titleOf(first.getContent()), last.getModelId(), first.getCreatedAt(), last.getCreatedAt(),
+                    sessionMessages.size());
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPageResponse<ChatSessionResponse> listSessions(User user, String cursor, Integer limit) {
+        PageCursor after = PageCursor.decode(cursor);
+        int pageSize = PageCursor.pageSize(limit, chatProperties.getPaging());
+        // 多取一行判断是否还有下一页
+        Limit fetch = Limit.of(pageSize + 1);
+        List<ChatSession> sessions = after == null
+                ? chatSessionRepository.findByUserOrderByLastActivityAtDescIdDesc(user, fetch)
+                : chatSessionRepository.findPageAfter(user, after.timestamp(), after.id(), fetch);
+        String nextCursor = null;
+        if (sessions.size() > pageSize) {
+            sessions = sessions.subList(0, pageSize);
+            ChatSession last = sessions.get(pageSize - 1);
+            nextCursor = new PageCursor(last.getLastActivityAt(), last.getId()).encode();
+        }
+        return CursorPageResponse.<ChatSessionResponse>builder()
+                .items(sessions.stream().map(this::toResponse).toList())
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    @Transactional
+    public void deleteSession(String sessionId, User user) {
+        chatSessionRepository.deleteBySessionIdAndUser(sessionId, user);
+    }
+
+    private ChatSessionResponse toResponse(ChatSession session) {
+        return ChatSessionResponse.builder()
+                .sessionId(session.getSessionId())
+                .title(session.getTitle())
+                .modelId(session.getModelId())
+                .messageCount(session.getMessageCount())
+                .createdAt(session.getCreatedAt())
+                .lastActivityAt(session.getLastActivityAt())
+                .build();
+    }
+
+    private static String titleOf(String content) {
+        if (content == null || content.length() <= TITLE_LENGTH) {
+            return content;
+        }
+        return content.substring(0, TITLE_LENGTH);
+    }
+}
@@ -0,0 +1,228 @@
+package com.example.chatbot.service;
+
+import com.example.chatbot.config.ChatProperties;
+import com.example.chatbot.config.ModelProperties;
+import com.example.chatbot.entity.ChatMessage;
+import com.example.chatbot.entity.ChatSession;
+import com.example.chatbot.entity.User;
+import com.example.chatbot.exception.TooManyRequestsException;
+import com.example.chatbot.inference.AdmissionController;
+import com.example.chatbot.inference.ModelRouter;
+import com.example.chatbot.inference.OllamaAdminClient;
+import com.example.chatbot.inference.ThinkingFilter;
+import com.example.chatbot.repository.ChatMessageRepository;
+import com.example.chatbot.repository.ChatSessionRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.ollama.api.OllamaOptions;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// 长会话的滚动摘要：未摘要的消息超过阈值后，在后台用模型把较早的消息并入摘要。
+// 对话请求只读取已有摘要，从不等待摘要生成
+@Service
+public class ConversationSummaryService {
+    private static final Logger log = LoggerFactory.getLogger(ConversationSummaryService.class);
+    private static final String SUMMARY_PROMPT = "你是对话摘要助手。请把已有摘要和新的对话合并为一份简洁的摘要，"
+            + "保留用户的问题、关键事实、已给出的结论和尚未解决的事项，使用第三人称，只输出摘要内容。";
+
+    private final ChatMessageRepository chatMessageRepository;
+    private final ChatSessionRepository chatSessionRepository;
+    private final ModelRouter modelRouter;
+    private final AdmissionController admissionController;
+    private final ModelProperties modelProperties;
+    private final TransactionTemplate transactionTemplate;
+    private final ChatProperties.Summary properties;
+    private final Cache<SessionKey, SessionSummary> summaries;
+    // 排队或正在生成摘要的会话，同一会话不重复提交
+    private final Set<SessionKey> pending = ConcurrentHashMap.newKeySet();
+    private final ThreadPoolExecutor executor;
+
+    private record SessionKey(Long userId, String sessionId) {
+    }
+
+    // 会话当前的摘要，until/untilId 之前（含）的消息已包含在摘要中
+    public record SessionSummary(String text, LocalDateTime until, Long untilId) {
+        static final SessionSummary NONE = new SessionSummary(null, null, null);
+
+        public boolean isEmpty() {
+            return text == null;
+        }
+
+        // 去掉已包含在摘要中的历史消息，history 按时间正序排列
+        public List<ChatMessage> unsummarized(List<ChatMessage> history) {
+            if (isEmpty()) {
+                return history;
+            }
+            return history.stream()
+                    .filter(message -> message.getCreatedAt().isAfter(until)
+                            || (message.getCreatedAt().isEqual(until) && message.getId() > untilId))
+                    .toList();
+        }
+    }
+
+    public ConversationSummaryService(ChatMessageRepository chatMessageRepository,
+                                      ChatSessionRepository chatSessionRepository, ModelRouter modelRouter,
+                                      AdmissionController admissionController, ModelProperties modelProperties,
+                                      TransactionTemplate transactionTemplate, ChatProperties chatProperties) {
+        this.chatMessageRepository = chatMessageRepository;
+        this.chatSessionRepository = chatSessionRepository;
+        this.modelRouter = modelRouter;
+        this.admissionController = admissionController;
+        this.modelProperties = modelProperties;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = chatProperties.getSummary();
+        this.summaries = Caffeine.newBuilder()
+                .maximumSize(chatProperties.getHistory().getCacheMaxSessions())
+                .expireAfterAccess(chatProperties.getHistory().getCacheIdleTimeout())
+                .build();
+        // 单线程按顺序生成，队列满时直接丢弃
+        this.executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(properties.getQueueCapacity()),
+                new CustomizableThreadFactory("chat-summary-"), new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public SessionSummary current(String sessionId, User user) {
+        if (!properties.isEnabled()) {
+            return SessionSummary.NONE;
+        }
+        return summaries.get(new SessionKey(user.getId(), sessionId), key -> load(sessionId, user));
+    }
+
+    // 每轮问答保存后调用，unsummarizedCount 为本轮之后尚未进入摘要的消息数（只需在达到阈值附近时准确）
+    public void onTurnSaved(String sessionId, User user, int unsummarizedCount) {
+        if (!properties.isEnabled() || unsummarizedCount < properties.getTriggerMessages()) {
+            return;
+        }
+        SessionKey key = new SessionKey(user.getId(), sessionId);
+        if (!pending.add(key)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    summarize(sessionId, user);
+                } catch (TooManyRequestsException e) {
+                    // 模型繁忙，等下一轮对话再尝试
+                    log.debug("Model busy, skipping summary of session {}", sessionId);
+                } catch (RuntimeException e) {
+                    log.warn("Failed to summarize session {}", sessionId, e);
+                } finally {
+                    pending.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pending.remove(key);
+            log.debug("Summary queue is full, skipping session {}", sessionId);
+        }
+    }
+
+    public void evict(String sessionId, User user) {
+        summaries.invalidate(new SessionKey(user.getId(), sessionId));
+    }
+
+    private SessionSummary load(String sessionId, User user) {
+        return chatSessionRepository.findBySessionIdAndUser(sessionId, user)
+                .filter(session -> session.getSummary() != null)
+                .map(session -> new SessionSummary(session.getSummary(), session.getSummaryUntil(),
+                        session.getSummaryUntilId()))
+                .orElse(SessionSummary.NONE);
+    }
+
+    private void summarize(String sessionId, User user) {
+        ChatSession session = chatSessionRepository.findBySessionIdAndUser(sessionId, user).orElse(null);
+        if (session == null) {
+            return;
+        }
+        int summarizedCount = session.getSummarizedCount() == null ? 0 : session.getSummarizedCount();
+        int count = session.getMessageCount() - summarizedCount - properties.getKeepRecentMessages();
+        if (session.getMessageCount() - summarizedCount < properties.getTriggerMessages() || count <= 0) {
+            return;
+        }
+        Limit limit = Limit.of(count);
+        List<ChatMessage> messages = new ArrayList<>(session.getSummaryUntil() == null
+                ? chatMessageRepository.findBySessionIdAndUserOrderByCreatedAtAscIdAsc(sessionId, user, limit)
+                : chatMessageRepository.findPageAfter(sessionId, user, session.getSummaryUntil(),
+                        session.getSummaryUntilId(), limit));
+        // 摘要止于完整的一轮，最后一个问题留给最近消息
+        if (!messages.isEmpty() && "user".equals(messages.get(messages.size() - 1).getRole())) {
+            messages.remove(messages.size() - 1);
+        }
+        if (messages.isEmpty()) {
+            return;
+        }
+
+        String summary = generate(session.getSummary(), messages, user);
+        if (summary.isBlank()) {
+            return;
+        }
+        ChatMessage last = messages.get(messages.size() - 1);
+        Integer updated = transactionTemplate.execute(status -> chatSessionRepository.updateSummary(
+                session.getId(), summary, last.getCreatedAt(), last.getId(),
+                summarizedCount + messages.size(), summarizedCount));
+        if (updated != null && updated > 0) {
+            summaries.put(new SessionKey(user.getId(), sessionId),
+                    new SessionSummary(summary, last.getCreatedAt(), last.getId()));
+            log.debug("Summarized {} messages of session {}", messages.size(), sessionId);
+        }
+    }
+
+    private String generate(String previousSummary, List<ChatMessage> messages, User user) {
+        StringBuilder input = new StringBuilder();
+        if (previousSummary != null) {
+            input.append("已有摘要：\n").append(previousSummary).append("\n\n");
+        }
+        input.append("新的对话：\n");
+        for (ChatMessage message : messages) {
+            input.append("user".equals(message.getRole()) ? "用户：" : "助手：")
+                    .append(message.getContent())
+                    .append('\n');
+        }
+        ModelProperties.ModelOption option = modelProperties.getOptions().get(properties.getModelId());
+        if (option == null) {
+            throw new IllegalStateException("Invalid summary model ID: " + properties.getModelId());
+        }
+        OllamaOptions.Builder options = OllamaOptions.builder()
+                .model(option.getModel())
+                .temperature(0.3)
+                .numCtx(option.getContextWindow())
+                .numPredict(properties.getMaxTokens());
+        if (modelProperties.getLifecycle().isEnabled()) {
+            options.keepAlive(OllamaAdminClient.keepAliveOf(modelProperties.getLifecycle().getKeepAlive()));
+        }
+        // 摘要走批量通道，不与用户的对话请求争抢
+        String content;
+        try (AdmissionController.Permit permit = admissionController.acquire(properties.getModelId(), user.getId(),
+                AdmissionController.Priority.BATCH)) {
+            content = modelRouter.call(properties.getModelId(), client -> client.prompt()
+                    .messages(new SystemMessage(SUMMARY_PROMPT), new UserMessage(input.toString()))
+                    .options(options.build())
+                    .call()
+                    .content());
+        }
+        // 推理模型会先输出思考过程，摘要只保留结论部分
+        return ThinkingFilter.strip(content == null ? "" : content);
+    }
+}
@@ -1,31 +1,110 @@
 package com.example.chatbot.service;
 
+import com.example.chatbot.cache.ResponseCache;
+import com.example.chatbot.cache.SimilarQuestionIndex;
+import com.example.chatbot.config.RetrievalProperties;
 import com.example.chatbot.entity.KnowledgeBase;
+import com.example.chatbot.entity.KnowledgeChunk;
 import com.example.chatbot.repository.KnowledgeBaseRepository;
+import com.example.chatbot.retrieval.InvertedIndex;
+import com.example.chatbot.retrieval.KnowledgeChunkStore;
+import com.example.chatbot.retrieval.Passage;
+import com.example.chatbot.retrieval.PassageDeduplicator;
+import com.example.chatbot.retrieval.ScoredPassage;
+import com.example.chatbot.retrieval.SemanticIndex;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 @Service
 @RequiredArgsConstructor
 public class KnowledgeService {
     private final KnowledgeBaseRepository knowledgeBaseRepository;
+    private final KnowledgeChunkStore chunkStore;
+    private final InvertedIndex invertedIndex;
+    private final SemanticIndex semanticIndex;
+    private final RetrievalProperties retrievalProperties;
+    private final ResponseCache responseCache;
+    private final SimilarQuestionIndex similarQuestionIndex;
+    // 计算段落向量较慢，放到单线程中按提交顺序执行，不阻塞管理接口
+    private final ExecutorService embeddingExecutor = Executors.newSingleThreadExecutor();
     private static final Logger log = LoggerFactory.getLogger(KnowledgeService.class);
+    private static final int RRF_K = 60;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIndex() {
+        List<KnowledgeBase> entries = knowledgeBaseRepository.findAll();
+        List<Passage> passages = new ArrayList<>();
+        List<SemanticIndex.Entry> vectors = new ArrayList<>();
+        boolean embedding = isSemanticEnabled();
+        for (KnowledgeBase entry : entries) {
+            List<KnowledgeChunk> chunks = chunkStore.sync(entry);
+            chunks.forEach(chunk -> passages.add(KnowledgeChunkStore.toPassage(entry, chunk)));
+            if (embedding) {
+                List<SemanticIndex.Entry> embedded = chunkStore.embed(entry, chunks);
+                vectors.addAll(embedded);
+                if (embedded.size() < chunks.size()) {
+                    // 向量服务不可用，其余条目不再逐个尝试
+                    log.warn("Embedding provider unavailable, semantic index is incomplete until next rebuild");
+                    embedding = false;
+                }
+            }
+        }
+        if (!entries.isEmpty()) {
+            chunkStore.deleteOrphans(entries.stream().map(KnowledgeBase::getId).toList());
+        }
+        invertedIndex.rebuild(passages);
+        if (isSemanticEnabled()) {
+            semanticIndex.rebuild(vectors);
+        }
+        log.info("Knowledge index built with {} entries, {} passages", entries.size(), passages.size());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        embeddingExecutor.shutdown();
+    }
 
     @Transactional
     public KnowledgeBase addKnowledge(KnowledgeBase knowledge) {
         log.debug("Adding new knowledge base entry: {}", knowledge.getTitle());
-        return knowledgeBaseRepository.save(knowledge);
+        KnowledgeBase saved = knowledgeBaseRepository.save(knowledge);
+        List<KnowledgeChunk> chunks = chunkStore.sync(saved);
+        afterCommit(() -> indexEntry(saved, chunks));
+        return saved;
     }
 
     @Transactional
     public void deleteKnowledge(Long id) {
         log.debug("Deleting knowledge base entry with id: {}", id);
         knowledgeBaseRepository.deleteById(id);
+        chunkStore.delete(id);
+        afterCommit(() -> {
+            invertedIndex.removeKnowledge(id);
+            responseCache.invalidateKnowledge(id);
+            similarQuestionIndex.onKnowledgeChanged();
+            if (isSemanticEnabled()) {
+                runEmbeddingTask(() -> {
+                    semanticIndex.removeKnowledge(id);
+                    responseCache.invalidateKnowledge(id);
+                });
+            }
+        });
     }
 
     public List<KnowledgeBase> searchByKeyword(String keyword) {
@@ -39,6 +118,24 @@ public class KnowledgeService {
         return results;
     }
 
+    // 对话时查找相关段落：BM25 倒排索引、HNSW 向量索引或两者融合，并去除重复段落
+    public List<Passage> search(String question) {
+        int topK = retrievalProperties.getTopK();
+        // 多取一些候选，去重后仍能凑满 topK
+        int candidates = topK * 2;
+        List<ScoredPassage> hits = switch (retrievalProperties.getMode()) {
+            case KEYWORD -> invertedIndex.search(question, candidates);
+            case SEMANTIC -> semanticIndex.search(question, candidates);
+            case HYBRID -> fuse(invertedIndex.search(question, candidates), semanticIndex.search(question, candidates));
+        };
+        List<ScoredPassage> deduplicated = PassageDeduplicator.deduplicate(
+                hits, retrievalProperties.getChunk().getDuplicateThreshold(), topK);
+        log.debug("Index search found {} passages, {} after deduplication", hits.size(), deduplicated.size());
+        return deduplicated.stream()
+                .map(ScoredPassage::passage)
+                .toList();
+    }
+
     public List<KnowledgeBase> findByCategory(String category) {
         return knowledgeBaseRepository.findByCategory(category);
     }
@@ -51,6 +148,69 @@ public class KnowledgeService {
         existing.setContent(knowledge.getContent());
         existing.setCategory(knowledge.getCategory());
         // updatedAt 字段由 @PreUpdate 自动处理
-        return knowledgeBaseRepository.save(existing);
+        KnowledgeBase saved = knowledgeBaseRepository.save(existing);
+        List<KnowledgeChunk> chunks = chunkStore.sync(saved);
+        afterCommit(() -> indexEntry(saved, chunks));
+        return saved;
+    }
+
+    private boolean isSemanticEnabled() {
+        return retrievalProperties.getMode() != RetrievalProperties.Mode.KEYWORD;
+    }
+
+    private void indexEntry(KnowledgeBase entry, List<KnowledgeChunk> chunks) {
+        invertedIndex.replace(entry.getId(), chunks.stream()
+                .map(chunk -> KnowledgeChunkStore.toPassage(entry, chunk))
+                .toList());
+        responseCache.invalidateKnowledge(entry.getId());
+        similarQuestionIndex.onKnowledgeChanged();
+        if (isSemanticEnabled()) {
+            runEmbeddingTask(() -> {
+                semanticIndex.replace(entry.getId(), chunkStore.embed(entry, chunks));
+                // 向量索引异步更新，期间可能按旧段落生成并缓存了回答，更新完成后再失效一次
+                responseCache.invalidateKnowledge(entry.getId());
+            });
+        }
+    }
+
+    // 线程池中未捕获的异常不会被记录，这里统一记录日志，后续任务继续执行
+    private void runEmbeddingTask(Runnable task) {
+        embeddingExecutor.execute(() -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                log.error("Knowledge embedding task failed", e);
+            }
+        });
+    }
+
+    // 倒数排名融合（RRF），两路分数量纲不同，只按排名合并
+    private List<ScoredPassage> fuse(List<ScoredPassage> keywordHits, List<ScoredPassage> semanticHits) {
+        Map<Long, ScoredPassage> fused = new LinkedHashMap<>();
+        for (List<ScoredPassage> hits : List.of(keywordHits, semanticHits)) {
+            for (int rank = 0; rank < hits.size(); rank++) {
+                ScoredPassage hit = hits.get(rank);
+                double score = 1.0 / (RRF_K + rank + 1);
+                fused.merge(hit.passage().id(), new ScoredPassage(hit.passage(), score),
+                        (a, b) -> new ScoredPassage(a.passage(), a.score() + b.score()));
+            }
+        }
+        List<ScoredPassage> results = new ArrayList<>(fused.values());
+        results.sort(Comparator.comparingDouble(ScoredPassage::score).reversed());
+        return results;
+    }
+
+    // 事务提交后再更新内存索引，避免回滚导致索引与数据库不一致
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
     }
 } 
\ No newline at end of file
@@ -0,0 +1,48 @@
+package com.example.chatbot.service;
+
+import com.example.chatbot.config.ChatProperties;
+import com.example.chatbot.exception.BusinessException;
+import com.example.chatbot.exception.ErrorCode;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+// 键集分页游标：上一页最后一行的排序时间和 id，对客户端不透明
+public record PageCursor(LocalDateTime timestamp, Long id) {
+
+    public String encode() {
+        String raw = timestamp + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // 空游标表示第一页
+    public static PageCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('|');
+            if (separator < 0) {
+                throw new IllegalArgumentException(raw);
+            }
+            return new PageCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.valueOf(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new BusinessException(ErrorCode.INVALID_PARAMETER, "无效的分页游标");
+        }
+    }
+
+    // 未指定 limit 时使用默认页大小，超过上限时按上限返回
+    public static int pageSize(Integer limit, ChatProperties.Paging paging) {
+        if (limit == null) {
+            return paging.getDefaultSize();
+        }
+        if (limit < 1) {
+            throw new BusinessException(ErrorCode.INVALID_PARAMETER, "limit 必须大于 0");
+        }
+        return Math.min(limit, paging.getMaxSize());
+    }
+}
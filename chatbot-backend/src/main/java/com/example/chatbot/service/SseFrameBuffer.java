@@ -0,0 +1,113 @@
+package com.example.chatbot.service;
+
+import com.example.chatbot.config.ChatProperties;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+// 单个流的 SSE 帧合并：同类型的连续片段先放入缓冲，达到字符上限、遇到句末标点或等待超过 maxDelay 时作为一帧发送。
+// 发送在调用线程中同步完成，客户端读取缓慢时 append 随写出一起阻塞，上游按需拉取，缓冲不会无限增长
+final class SseFrameBuffer {
+    private static final String SENTENCE_ENDS = "。！？；…\n.!?;";
+
+    interface Sender {
+        void send(String event, String data);
+    }
+
+    private final ChatProperties.Frame properties;
+    private final Sender sender;
+    // 定时发送在 worker 中执行，避免在 Reactor 的计时线程上阻塞写出
+    private final Scheduler worker;
+    private final StringBuilder pending = new StringBuilder();
+    private String pendingEvent;
+    private volatile boolean timerScheduled;
+    private boolean closed;
+    // 定时发送失败的异常，在下一次 append 或 flush 时抛出
+    private RuntimeException failure;
+
+    SseFrameBuffer(ChatProperties.Frame properties, Sender sender, Scheduler worker) {
+        this.properties = properties;
+        this.sender = sender;
+        this.worker = worker;
+    }
+
+    synchronized void append(String event, String text) {
+        throwFailure();
+        if (closed || text.isEmpty()) {
+            return;
+        }
+        if (!properties.isEnabled()) {
+            sender.send(event, text);
+            return;
+        }
+        if (pendingEvent != null && !pendingEvent.equals(event)) {
+            sendPending();
+        }
+        pendingEvent = event;
+        pending.append(text);
+        if (pending.length() >= properties.getMaxChars()
+                || (properties.isFlushOnSentence() && endsSentence(text))) {
+            sendPending();
+        } else if (!timerScheduled) {
+            timerScheduled = true;
+            Schedulers.parallel().schedule(this::flushLater, properties.getMaxDelay().toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // 发送缓冲中剩余的内容，流正常结束时在最后一帧之前调用
+    synchronized void flush() {
+        throwFailure();
+        if (!closed) {
+            sendPending();
+        }
+    }
+
+    // 流结束或取消后不再发送，之后触发的定时发送直接忽略
+    synchronized void close() {
+        closed = true;
+        pending.setLength(0);
+        pendingEvent = null;
+    }
+
+    private void flushLater() {
+        try {
+            worker.schedule(() -> {
+                synchronized (this) {
+                    timerScheduled = false;
+                    if (closed || failure != null) {
+                        return;
+                    }
+                    try {
+                        sendPending();
+                    } catch (RuntimeException e) {
+                        failure = e;
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // 线程池已满，留给下一次 append 或 flush 发送
+            timerScheduled = false;
+        }
+    }
+
+    private void sendPending() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        String data = pending.toString();
+        pending.setLength(0);
+        sender.send(pendingEvent, data);
+    }
+
+    private void throwFailure() {
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static boolean endsSentence(String text) {
+        return SENTENCE_ENDS.indexOf(text.charAt(text.length() - 1)) >= 0;
+    }
+}
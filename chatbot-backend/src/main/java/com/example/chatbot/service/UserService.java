@@ -5,12 +5,15 @@ import com.example.chatbot.entity.UserRole;
 import com.example.chatbot.repository.UserRepository;
 import com.example.chatbot.exception.BusinessException;
 import com.example.chatbot.exception.ErrorCode;
+import com.example.chatbot.security.UserChangedEvent;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -19,6 +22,7 @@ import java.util.Optional;
 public class UserService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final ApplicationEventPublisher eventPublisher;
 
     @PreAuthorize("hasRole('ADMIN')")
     public List<User> getAllUsers() {
@@ -70,7 +74,11 @@ public class UserService {
             existingUser.setPassword(passwordEncoder.encode(user.getPassword()));
         }
         existingUser.setRoles(user.getRoles());
+        // 只修改角色集合时 @PreUpdate 不一定触发，显式记录凭据变更时间
+        existingUser.setCredentialsChangedAt(LocalDateTime.now());
 
+        // 已签发令牌中的用户名和角色可能过时
+        eventPublisher.publishEvent(new UserChangedEvent(id));
         return userRepository.save(existingUser);
     }
 
@@ -81,6 +89,7 @@ public class UserService {
             throw new BusinessException(ErrorCode.USER_NOT_FOUND);
         }
         userRepository.deleteById(id);
+        eventPublisher.publishEvent(new UserChangedEvent(id));
     }
 
     public Optional<User> findByUsername(String username) {
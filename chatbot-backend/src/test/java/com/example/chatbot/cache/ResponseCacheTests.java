@@ -0,0 +1,53 @@
+package com.example.chatbot.cache;
+
+import com.example.chatbot.config.ChatProperties;
+import com.example.chatbot.config.ModelProperties;
+import com.example.chatbot.retrieval.Passage;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ResponseCacheTests {
+
+    private final ResponseCache cache = new ResponseCache(new ChatProperties());
+    private final ModelProperties.ModelOption option = new ModelProperties.ModelOption();
+    private final List<Passage> passages = List.of(
+            new Passage(10L, 1L, "重置密码", 0, "点击忘记密码"),
+            new Passage(20L, 2L, "账号安全", 0, "开启两步验证"));
+
+    @Test
+    void differentSpellingsOfTheSameQuestionShareAnEntry() {
+        cache.put(cache.keyOf("如何重置密码？", "qwen3", option, passages), "点击忘记密码");
+
+        assertEquals("点击忘记密码", cache.get(cache.keyOf("  如何重置密码 ", "qwen3", option, passages)));
+        assertNull(cache.get(cache.keyOf("如何重置密码", "deepseek", option, passages)));
+        assertNull(cache.get(cache.keyOf("如何重置密码", "qwen3", option, passages.subList(0, 1))));
+    }
+
+    @Test
+    void updatingReferencedKnowledgeInvalidatesOnlyDependentAnswers() {
+        ResponseCache.Key both = cache.keyOf("如何重置密码", "qwen3", option, passages);
+        ResponseCache.Key other = cache.keyOf("怎么开启两步验证", "qwen3", option, passages.subList(1, 2));
+        cache.put(both, "a");
+        cache.put(other, "b");
+
+        cache.invalidateKnowledge(1L);
+
+        assertNull(cache.get(both));
+        assertNull(cache.get(cache.keyOf("如何重置密码", "qwen3", option, passages)));
+        assertEquals("b", cache.get(cache.keyOf("怎么开启两步验证", "qwen3", option, passages.subList(1, 2))));
+    }
+
+    @Test
+    void answerGeneratedBeforeInvalidationIsNeverServed() {
+        // 生成回答期间知识条目被修改，之后才写入缓存
+        ResponseCache.Key staleKey = cache.keyOf("如何重置密码", "qwen3", option, passages);
+        cache.invalidateKnowledge(1L);
+        cache.put(staleKey, "旧回答");
+
+        assertNull(cache.get(cache.keyOf("如何重置密码", "qwen3", option, passages)));
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.chatbot.cache;
+
+import com.example.chatbot.config.ChatProperties;
+import com.example.chatbot.entity.ChatMessage;
+import com.example.chatbot.entity.User;
+import com.example.chatbot.repository.ChatMessageRepository;
+import com.example.chatbot.service.ChatMessageWriter;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SessionHistoryCacheTests {
+
+    private final ChatMessageRepository repository = mock(ChatMessageRepository.class);
+    private final ChatProperties chatProperties = new ChatProperties();
+    private final User user = new User();
+
+    SessionHistoryCacheTests() {
+        user.setId(1L);
+        chatProperties.getHistory().setMaxMessages(3);
+    }
+
+    @Test
+    void loadsOnceThenServesAppendedMessagesFromTheRingBuffer() {
+        // 数据库按时间倒序返回
+        when(repository.findBySessionIdAndUserOrderByCreatedAtDesc(eq("s1"), eq(user), any(Limit.class)))
+                .thenReturn(new ArrayList<>(List.of(message(2L, "二"), message(1L, "一"))));
+        SessionHistoryCache cache = newCache();
+
+        assertEquals(List.of("一", "二"), contents(cache.recent("s1", user)));
+        cache.append(message(3L, "三"));
+        cache.append(message(4L, "四"));
+
+        // 容量为 3，最旧的消息被覆盖
+        assertEquals(List.of("二", "三", "四"), contents(cache.recent("s1", user)));
+        verify(repository, times(1)).findBySessionIdAndUserOrderByCreatedAtDesc(eq("s1"), eq(user), any(Limit.class));
+    }
+
+    @Test
+    void ignoresMessagesAlreadyLoadedAndSessionsNotCached() {
+        when(repository.findBySessionIdAndUserOrderByCreatedAtDesc(eq("s1"), eq(user), any(Limit.class)))
+                .thenReturn(new ArrayList<>(List.of(message(5L, "五"))));
+        SessionHistoryCache cache = newCache();
+        // 未缓存的会话不追加，首次访问时才从数据库加载
+        cache.append(message(5L, "五"));
+        cache.recent("s1", user);
+
+        // 加载与保存并发时，已从数据库读到的消息不会重复
+        cache.append(message(5L, "五"));
+        assertEquals(List.of("五"), contents(cache.recent("s1", user)));
+
+        cache.evict("s1", user);
+        cache.recent("s1", user);
+        verify(repository, times(2)).findBySessionIdAndUserOrderByCreatedAtDesc(eq("s1"), eq(user), any(Limit.class));
+    }
+
+    private SessionHistoryCache newCache() {
+        // 未开启异步写入，等待排队消息时直接返回
+        ChatMessageWriter writer = new ChatMessageWriter(repository, null, null, chatProperties);
+        return new SessionHistoryCache(chatProperties, repository, writer);
+    }
+
+    private ChatMessage message(Long id, String content) {
+        ChatMessage message = new ChatMessage();
+        message.setId(id);
+        message.setSessionId("s1");
+        message.setUser(user);
+        message.setRole("user");
+        message.setContent(content);
+        return message;
+    }
+
+    private static List<String> contents(List<ChatMessage> messages) {
+        return messages.stream().map(ChatMessage::getContent).toList();
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.chatbot.cache;
+
+import com.example.chatbot.config.ChatProperties;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class SimilarQuestionIndexTests {
+
+    private final SimilarQuestionIndex index = new SimilarQuestionIndex(new ChatProperties(), null, null);
+
+    @Test
+    void reusesAnswerForRephrasedQuestion() {
+        index.add(index.probe(1L, "qwen3", "请问怎么重置密码"), 100L);
+
+        assertEquals(100L, index.findAnswer(index.probe(1L, "qwen3", "怎么重置密码呢")));
+    }
+
+    @Test
+    void questionsDifferingInOneKeyTermDoNotMatch() {
+        String[][] nearMisses = {
+                {"我的账号被封了怎么办", "我的账号被盗了怎么办"},
+                {"订单12345什么时候发货", "订单12346什么时候发货"},
+                {"如何重置登录密码", "如何修改登录密码"},
+                {"怎样开通自动续费", "怎样关闭自动续费"},
+                {"会员可以退款吗", "会员可以续费吗"}
+        };
+        long messageId = 1;
+        for (String[] pair : nearMisses) {
+            index.add(index.probe(1L, "qwen3", pair[0]), messageId++);
+        }
+        for (String[] pair : nearMisses) {
+            assertNull(index.findAnswer(index.probe(1L, "qwen3", pair[1])), pair[1]);
+        }
+    }
+
+    @Test
+    void answersAreNotSharedAcrossUsersOrModels() {
+        index.add(index.probe(1L, "qwen3", "我的订单怎么申请退款"), 100L);
+
+        assertNull(index.findAnswer(index.probe(2L, "qwen3", "我的订单怎么申请退款")));
+        assertNull(index.findAnswer(index.probe(1L, "deepseek", "我的订单怎么申请退款")));
+        assertEquals(100L, index.findAnswer(index.probe(1L, "qwen3", "我的订单怎么申请退款")));
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.chatbot.inference;
+
+import com.example.chatbot.config.ModelProperties;
+import com.example.chatbot.dto.AdmissionStatusResponse;
+import com.example.chatbot.exception.TooManyRequestsException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdmissionControllerTests {
+
+    private ModelProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        properties = new ModelProperties();
+        ModelProperties.ModelOption option = new ModelProperties.ModelOption();
+        option.setModel("qwen3:4b");
+        option.setMaxConcurrency(1);
+        properties.setOptions(Map.of("qwen3", option));
+        properties.getAdmission().setQueueCapacity(10);
+        properties.getAdmission().setMaxQueuedPerUser(3);
+        properties.getAdmission().setInteractiveWeight(2);
+    }
+
+    @Test
+    void alternatesBetweenUsersAndLetsBatchThroughAfterInteractiveWeight() {
+        AdmissionController controller = new AdmissionController(properties);
+        AdmissionController.Permit running = controller.acquire("qwen3", 1L, AdmissionController.Priority.INTERACTIVE);
+
+        List<String> order = new CopyOnWriteArrayList<>();
+        enqueue(controller, 1L, AdmissionController.Priority.INTERACTIVE, "a1", order);
+        enqueue(controller, 1L, AdmissionController.Priority.INTERACTIVE, "a2", order);
+        enqueue(controller, 1L, AdmissionController.Priority.INTERACTIVE, "a3", order);
+        enqueue(controller, 2L, AdmissionController.Priority.INTERACTIVE, "b1", order);
+        enqueue(controller, 3L, AdmissionController.Priority.BATCH, "s1", order);
+
+        running.release();
+
+        // 用户 1 排了三个请求，用户 2 不必等它们全部完成；每两个交互请求后放行一个批量请求
+        assertEquals(List.of("a1", "b1", "s1", "a2", "a3"), order);
+        AdmissionStatusResponse status = controller.status().get(0);
+        assertEquals(0, status.getActive());
+        assertEquals(6, status.getAdmittedCount());
+        assertEquals(5, status.getQueuedCount());
+    }
+
+    @Test
+    void rejectsWithRetryAfterWhenUserOrModelQueueIsFull() {
+        properties.getAdmission().setQueueCapacity(4);
+        AdmissionController controller = new AdmissionController(properties);
+        AdmissionController.Permit running = controller.acquire("qwen3", 1L, AdmissionController.Priority.INTERACTIVE);
+        // 排队的订阅在测试结束时取消，不会在之后的测试中超时
+        Disposable.Composite queued = Disposables.composite();
+        for (int i = 0; i < 3; i++) {
+            queued.add(controller.acquireAsync("qwen3", 1L, AdmissionController.Priority.INTERACTIVE)
+                    .subscribe(AdmissionController.Permit::release, e -> { }));
+        }
+
+        TooManyRequestsException perUser = assertThrows(TooManyRequestsException.class,
+                () -> controller.checkCapacity("qwen3", 1L));
+        assertTrue(perUser.getRetryAfterSeconds() >= 1);
+
+        queued.add(controller.acquireAsync("qwen3", 2L, AdmissionController.Priority.INTERACTIVE)
+                .subscribe(AdmissionController.Permit::release, e -> { }));
+        assertThrows(TooManyRequestsException.class, () -> controller.checkCapacity("qwen3", 3L));
+        assertEquals(2, controller.status().get(0).getRejectedCount());
+
+        queued.dispose();
+        running.release();
+        assertEquals(0, controller.status().get(0).getActive());
+        assertEquals(0, controller.status().get(0).getQueuedInteractive());
+    }
+
+    @Test
+    void timesOutQueuedRequestsAndReleasesCancelledOnes() {
+        properties.getAdmission().setMaxQueueWait(Duration.ofMillis(50));
+        AdmissionController controller = new AdmissionController(properties);
+        AdmissionController.Permit running = controller.acquire("qwen3", 1L, AdmissionController.Priority.INTERACTIVE);
+
+        assertThrows(TooManyRequestsException.class,
+                () -> controller.acquire("qwen3", 2L, AdmissionController.Priority.INTERACTIVE));
+        assertThrows(TooManyRequestsException.class,
+                () -> controller.acquireAsync("qwen3", 2L, AdmissionController.Priority.INTERACTIVE).block());
+
+        controller.acquireAsync("qwen3", 2L, AdmissionController.Priority.INTERACTIVE).subscribe().dispose();
+        running.release();
+
+        AdmissionStatusResponse status = controller.status().get(0);
+        assertEquals(2, status.getTimedOutCount());
+        assertEquals(0, status.getActive());
+        assertEquals(0, status.getQueuedInteractive());
+    }
+
+    private static void enqueue(AdmissionController controller, Long userId, AdmissionController.Priority priority,
+                                String name, List<String> order) {
+        // 放行后立即释放，下一个请求随之放行
+        Mono<AdmissionController.Permit> permit = controller.acquireAsync("qwen3", userId, priority);
+        permit.subscribe(granted -> {
+            order.add(name);
+            granted.release();
+        });
+    }
+}
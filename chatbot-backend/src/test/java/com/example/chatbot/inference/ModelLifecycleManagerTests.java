@@ -0,0 +1,147 @@
+package com.example.chatbot.inference;
+
+import com.example.chatbot.config.ModelProperties;
+import com.example.chatbot.dto.ModelStatusResponse;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestClient;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ModelLifecycleManagerTests {
+
+    // 模拟 Ollama：记录 /api/generate 请求体，/api/ps 返回当前已加载的模型
+    private HttpServer server;
+    private final List<String> generateRequests = new CopyOnWriteArrayList<>();
+    private final Set<String> loaded = ConcurrentHashMap.newKeySet();
+    private ModelProperties properties;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api/generate", exchange -> {
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            generateRequests.add(body);
+            String model = body.contains("qwen3:4b") ? "qwen3:4b" : "deepseek-r1:7b";
+            if (body.contains("\"keep_alive\":0")) {
+                loaded.remove(model);
+            } else {
+                loaded.add(model);
+            }
+            respond(exchange, "{\"model\":\"" + model + "\",\"done\":true,\"done_reason\":\"load\"}");
+        });
+        server.createContext("/api/ps", exchange -> {
+            String models = loaded.stream()
+                    .map(model -> "{\"name\":\"" + model + "\",\"model\":\"" + model + "\",\"size_vram\":1}")
+                    .reduce((a, b) -> a + "," + b)
+                    .orElse("");
+            respond(exchange, "{\"models\":[" + models + "]}");
+        });
+        server.start();
+
+        properties = new ModelProperties();
+        properties.setOptions(Map.of("qwen3", option("qwen3:4b"), "deepseekR1", option("deepseek-r1:7b")));
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void preloadsConfiguredModelsAndReportsThemWarm() {
+        ModelLifecycleManager manager = newManager();
+        manager.preload();
+
+        assertEquals(2, generateRequests.size());
+        assertTrue(generateRequests.stream().allMatch(body -> body.contains("\"keep_alive\":\"600s\"")));
+        assertEquals(Set.of("qwen3:4b", "deepseek-r1:7b"), loaded);
+        manager.status().forEach(status -> {
+            assertEquals("WARM", status.getStatus());
+            assertEquals(1, status.getLoadCount());
+        });
+    }
+
+    @Test
+    void unloadsIdleModelsAndKeepsRecentlyUsedOnesAlive() throws InterruptedException {
+        properties.getLifecycle().setIdleTimeout(Duration.ofMillis(200));
+        properties.getLifecycle().setKeepAlive(Duration.ofMillis(100));
+        ModelLifecycleManager manager = newManager();
+        manager.preload();
+        Thread.sleep(250);
+        manager.recordUse("qwen3", baseUrl());
+        generateRequests.clear();
+        // 超过 keepAlive 的一半后需要保活
+        Thread.sleep(60);
+
+        manager.maintain();
+
+        assertEquals(Set.of("qwen3:4b"), loaded);
+        assertEquals("WARM", statusOf(manager, "qwen3").getStatus());
+        ModelStatusResponse idle = statusOf(manager, "deepseekR1");
+        assertEquals("COLD", idle.getStatus());
+        assertEquals(1, idle.getEvictionCount());
+        // 使用中的模型发送了保活请求，空闲模型收到 keep_alive=0
+        assertTrue(generateRequests.stream().anyMatch(body -> body.contains("qwen3:4b")));
+        assertTrue(generateRequests.stream().anyMatch(body -> body.contains("deepseek-r1:7b")
+                && body.contains("\"keep_alive\":0")));
+    }
+
+    @Test
+    void countsColdStartWhenModelWasEvictedByOllama() {
+        ModelLifecycleManager manager = newManager();
+        manager.preload();
+        loaded.remove("deepseek-r1:7b");
+        properties.getLifecycle().setIdleTimeout(Duration.ZERO);
+
+        manager.maintain();
+        manager.recordUse("deepseekR1", baseUrl());
+
+        ModelStatusResponse status = statusOf(manager, "deepseekR1");
+        assertEquals(1, status.getColdStarts());
+        assertEquals("WARM", status.getStatus());
+    }
+
+    private ModelLifecycleManager newManager() {
+        return new ModelLifecycleManager(new OllamaAdminClient(RestClient.builder(), properties), properties, baseUrl());
+    }
+
+    private String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    private static ModelStatusResponse statusOf(ModelLifecycleManager manager, String modelId) {
+        return manager.status().stream()
+                .filter(status -> status.getModelId().equals(modelId))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private static ModelProperties.ModelOption option(String model) {
+        ModelProperties.ModelOption option = new ModelProperties.ModelOption();
+        option.setModel(model);
+        return option;
+    }
+
+    private static void respond(HttpExchange exchange, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        exchange.getResponseBody().write(bytes);
+        exchange.close();
+    }
+}
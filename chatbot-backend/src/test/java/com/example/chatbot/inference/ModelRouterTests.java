@@ -0,0 +1,132 @@
+package com.example.chatbot.inference;
+
+import com.example.chatbot.config.ModelProperties;
+import com.example.chatbot.exception.BusinessException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.ollama.OllamaChatModel;
+import org.springframework.ai.ollama.api.OllamaApi;
+import org.springframework.ai.ollama.api.OllamaOptions;
+import org.springframework.web.client.RestClient;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ModelRouterTests {
+
+    // 两个模拟 Ollama 节点，/api/tags 返回已安装的模型
+    private HttpServer first;
+    private HttpServer second;
+    private ModelProperties properties;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        first = startServer();
+        second = startServer();
+        properties = new ModelProperties();
+        properties.getLifecycle().setEnabled(false);
+        properties.getRouting().setFailureThreshold(1);
+        ModelProperties.ModelOption option = new ModelProperties.ModelOption();
+        option.setModel("qwen3:4b");
+        option.setEndpoints(List.of(urlOf(first), urlOf(second)));
+        properties.setOptions(Map.of("qwen3", option));
+    }
+
+    @AfterEach
+    void tearDown() {
+        first.stop(0);
+        second.stop(0);
+    }
+
+    @Test
+    void selectsEndpointWithFewestOutstandingRequests() {
+        ModelRouter router = newRouter();
+        router.checkHealth();
+
+        OllamaEndpoint busy = router.select("qwen3");
+        busy.acquire();
+        OllamaEndpoint next = router.select("qwen3");
+
+        assertTrue(busy != next);
+        busy.release();
+    }
+
+    @Test
+    void ejectsFailingEndpointAndReadmitsItAfterHealthCheck() {
+        properties.getRouting().setEjectionTime(Duration.ZERO);
+        ModelRouter router = newRouter();
+        first.stop(0);
+
+        router.checkHealth();
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(urlOf(second), router.select("qwen3").baseUrl());
+        }
+        assertEquals(1, router.status().stream().filter(status -> status.isEjected()).count());
+
+        second.stop(0);
+        router.checkHealth();
+        assertThrows(BusinessException.class, () -> router.select("qwen3"));
+        assertTrue(router.availableModels().isEmpty());
+    }
+
+    @Test
+    void skipsEndpointsWithoutTheModelInstalled() throws IOException {
+        HttpServer other = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        other.createContext("/api/tags", exchange -> respond(exchange,
+                "{\"models\":[{\"name\":\"deepseek-r1:7b\",\"model\":\"deepseek-r1:7b\"}]}"));
+        other.start();
+        try {
+            properties.getOptions().get("qwen3").setEndpoints(List.of(urlOf(other), urlOf(second)));
+            ModelRouter router = newRouter();
+            router.checkHealth();
+
+            assertEquals(urlOf(second), router.select("qwen3").baseUrl());
+        } finally {
+            other.stop(0);
+        }
+    }
+
+    private ModelRouter newRouter() {
+        OllamaAdminClient adminClient = new OllamaAdminClient(RestClient.builder(), properties);
+        String defaultBaseUrl = properties.getOptions().get("qwen3").getEndpoints().get(0);
+        OllamaChatModel defaultChatModel = OllamaChatModel.builder()
+                .ollamaApi(OllamaApi.builder().baseUrl(defaultBaseUrl).build())
+                .defaultOptions(OllamaOptions.builder().model("qwen3:4b").build())
+                .build();
+        return new ModelRouter(properties, adminClient,
+                new ModelLifecycleManager(adminClient, properties, defaultBaseUrl), defaultChatModel,
+                model -> null, defaultBaseUrl);
+    }
+
+    private static HttpServer startServer() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api/tags", exchange -> respond(exchange,
+                "{\"models\":[{\"name\":\"qwen3:4b\",\"model\":\"qwen3:4b\"}]}"));
+        server.start();
+        return server;
+    }
+
+    private static String urlOf(HttpServer server) {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    private static void respond(HttpExchange exchange, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        exchange.getResponseBody().write(bytes);
+        exchange.close();
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.chatbot.inference;
+
+import com.example.chatbot.config.ChatProperties;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RequestCoalescerTests {
+
+    private final RequestCoalescer coalescer = new RequestCoalescer(new ChatProperties());
+
+    @Test
+    void concurrentCallsShareOneGeneration() throws Exception {
+        AtomicInteger generations = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> coalescer.call("key", () -> {
+            generations.incrementAndGet();
+            started.countDown();
+            await(finish);
+            return "answer";
+        }));
+        started.await();
+        CompletableFuture<String> follower = CompletableFuture.supplyAsync(() -> coalescer.call("key", () -> {
+            generations.incrementAndGet();
+            return "another";
+        }));
+        // 等待跟随者进入等待状态
+        Thread.sleep(50);
+        finish.countDown();
+
+        assertEquals("answer", leader.get(1, TimeUnit.SECONDS));
+        assertEquals("answer", follower.get(1, TimeUnit.SECONDS));
+        assertEquals(1, generations.get());
+        assertEquals(1, coalescer.coalescedCount());
+    }
+
+    @Test
+    void lateStreamSubscribersReceiveTokensGeneratedBeforeTheyJoined() {
+        Sinks.Many<String> tokens = Sinks.many().unicast().onBackpressureBuffer();
+        AtomicBoolean cancelled = new AtomicBoolean();
+        AtomicInteger generations = new AtomicInteger();
+        List<String> first = new CopyOnWriteArrayList<>();
+        List<String> second = new CopyOnWriteArrayList<>();
+
+        coalescer.stream("key", () -> {
+            generations.incrementAndGet();
+            return tokens.asFlux().doOnCancel(() -> cancelled.set(true));
+        }).subscribe(first::add);
+        tokens.tryEmitNext("你");
+        tokens.tryEmitNext("好");
+        coalescer.stream("key", () -> {
+            generations.incrementAndGet();
+            return Flux.just("other");
+        }).subscribe(second::add);
+        tokens.tryEmitNext("！");
+        tokens.tryEmitComplete();
+
+        assertEquals(List.of("你", "好", "！"), first);
+        assertEquals(first, second);
+        assertEquals(1, generations.get());
+        // 正常结束的生成不会被当作取消
+        assertTrue(!cancelled.get());
+    }
+
+    @Test
+    void cancelsGenerationOnlyAfterAllSubscribersLeave() {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        Sinks.Many<String> tokens = Sinks.many().unicast().onBackpressureBuffer();
+        Flux<String> generation = tokens.asFlux().doOnCancel(() -> cancelled.set(true));
+
+        Disposable first = coalescer.stream("key", () -> generation).subscribe();
+        Disposable second = coalescer.stream("key", () -> generation).subscribe();
+        first.dispose();
+        assertTrue(!cancelled.get());
+        second.dispose();
+        assertTrue(cancelled.get());
+
+        // 取消后的相同请求重新生成
+        List<String> received = new CopyOnWriteArrayList<>();
+        coalescer.stream("key", () -> Flux.just("new")).subscribe(received::add);
+        assertEquals(List.of("new"), received);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
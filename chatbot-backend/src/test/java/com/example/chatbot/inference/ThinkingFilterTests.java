@@ -0,0 +1,71 @@
+package com.example.chatbot.inference;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class ThinkingFilterTests {
+
+    private final StringBuilder answer = new StringBuilder();
+    private final StringBuilder reasoning = new StringBuilder();
+    private final List<String> answers = new ArrayList<>();
+
+    @Test
+    void separatesReasoningWhenTagsAreSplitAtEveryPosition() {
+        String response = "<think>先想一想 a<b</think>\n\n答案是 <thin 和 </think>。";
+        for (int first = 0; first <= response.length(); first++) {
+            for (int second = first; second <= response.length(); second++) {
+                answer.setLength(0);
+                reasoning.setLength(0);
+                ThinkingFilter filter = newFilter();
+                filter.accept(response.substring(0, first));
+                filter.accept(response.substring(first, second));
+                filter.accept(response.substring(second));
+                filter.finish();
+
+                String split = first + "/" + second;
+                assertEquals("先想一想 a<b", reasoning.toString(), split);
+                assertEquals("答案是 <thin 和 </think>。", answer.toString(), split);
+            }
+        }
+    }
+
+    @Test
+    void stripsReasoningFromCompleteResponse() {
+        assertEquals("答案是 42。", ThinkingFilter.strip("<think>先算一下</think>\n\n答案是 42。\n"));
+        assertEquals("没有思考过程", ThinkingFilter.strip("没有思考过程"));
+        assertEquals("", ThinkingFilter.strip("<think>只有思考，没有回答"));
+    }
+
+    @Test
+    void passesPlainChunksThroughAndFlushesUnfinishedTagAtEnd() {
+        ThinkingFilter filter = newFilter();
+        String chunk = "你好";
+        filter.accept(chunk);
+        filter.accept("，<thi");
+        filter.finish();
+
+        assertSame(chunk, answers.get(0));
+        assertEquals("你好，<thi", answer.toString());
+        assertEquals("", reasoning.toString());
+    }
+
+    private ThinkingFilter newFilter() {
+        return new ThinkingFilter(new ThinkingFilter.Listener() {
+            @Override
+            public void onAnswer(String text) {
+                answer.append(text);
+                answers.add(text);
+            }
+
+            @Override
+            public void onReasoning(String text) {
+                reasoning.append(text);
+            }
+        });
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.chatbot.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChatMetricsTests {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ChatMetrics metrics = new ChatMetrics(registry);
+
+    @Test
+    void recordsFirstTokenLatencyGenerationSpeedAndActiveStreams() throws InterruptedException {
+        ChatMetrics.StreamRecorder recorder = metrics.stream("qwen3", System.nanoTime());
+        recorder.onSubscribe();
+        assertEquals(1, registry.get("chatbot.chat.streams.active").gauge().value());
+
+        recorder.onToken();
+        Thread.sleep(20);
+        recorder.onToken();
+        recorder.onToken();
+        recorder.onFinish();
+
+        assertEquals(0, registry.get("chatbot.chat.streams.active").gauge().value());
+        assertEquals(1, registry.get("chatbot.chat.first.token").tag("model", "qwen3").timer().count());
+        assertEquals(3, registry.get("chatbot.chat.completion.tokens").tag("model", "qwen3").counter().count());
+        double tokensPerSecond = registry.get("chatbot.chat.tokens.per.second").tag("model", "qwen3")
+                .summary().max();
+        // 3 个 token 用了 20 毫秒以上
+        assertTrue(tokensPerSecond > 0 && tokensPerSecond <= 150, String.valueOf(tokensPerSecond));
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.chatbot.prompt;
+
+import com.example.chatbot.config.ChatProperties;
+import com.example.chatbot.config.ModelProperties;
+import com.example.chatbot.entity.ChatMessage;
+import com.example.chatbot.retrieval.Passage;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PromptAssemblerTests {
+
+    private final PromptAssembler assembler;
+
+    PromptAssemblerTests() {
+        ChatProperties properties = new ChatProperties();
+        properties.getPrompt().setOverheadTokens(0);
+        assembler = new PromptAssembler(properties);
+    }
+
+    @Test
+    void estimatesCjkPerCharacterAndOtherTextPerFourCharacters() {
+        assertEquals(0, TokenEstimator.estimate(""));
+        assertEquals(2, TokenEstimator.estimate("你好"));
+        assertEquals(2, TokenEstimator.estimate("abcdefgh"));
+        assertEquals(2, TokenEstimator.estimate("abcde"));
+        assertEquals(1, TokenEstimator.estimate("😀"));
+        assertEquals(6, TokenEstimator.estimateMessage("你好"));
+    }
+
+    @Test
+    void skipsPassageThatDoesNotFitButKeepsLaterSmallerOne() {
+        List<Passage> passages = List.of(
+                new Passage(1L, 1L, "长文档", 0, "长".repeat(400)),
+                new Passage(2L, 2L, "短文档", 0, "短".repeat(50)));
+
+        AssembledPrompt prompt = assembler.assemble("系统", "问题", passages, List.of(), option(300));
+
+        assertEquals(1, prompt.passageCount());
+        assertTrue(prompt.estimatedTokens() <= 300);
+        String question = prompt.messages().get(prompt.messages().size() - 1).getText();
+        assertTrue(question.startsWith("问题"));
+        assertTrue(question.contains("短文档"));
+        assertFalse(question.contains("长文档"));
+    }
+
+    @Test
+    void keepsOnlyTheNewestContiguousHistoryThatFits() {
+        List<ChatMessage> history = List.of(
+                message("user", "早"),
+                message("assistant", "长".repeat(200)),
+                message("user", "问题二"),
+                message("assistant", "回答二"));
+
+        AssembledPrompt prompt = assembler.assemble("系统", "问题三", List.of(), history, option(150));
+
+        // 较早的短消息放得下，但中间的长消息放不下，为保持连续同样丢弃
+        assertEquals(2, prompt.historyCount());
+        List<Message> messages = prompt.messages();
+        assertEquals(4, messages.size());
+        assertInstanceOf(SystemMessage.class, messages.get(0));
+        assertInstanceOf(UserMessage.class, messages.get(1));
+        assertEquals("问题二", messages.get(1).getText());
+        assertInstanceOf(AssistantMessage.class, messages.get(2));
+        assertEquals("回答二", messages.get(2).getText());
+        assertEquals("问题三", messages.get(3).getText());
+    }
+
+    @Test
+    void questionExceedingBudgetIsStillSentWithoutContext() {
+        AssembledPrompt prompt = assembler.assemble("系统", "问".repeat(50),
+                List.of(new Passage(1L, 1L, "文档", 0, "内容")), List.of(message("user", "之前")), option(20));
+
+        assertEquals(2, prompt.messages().size());
+        assertEquals(0, prompt.passageCount());
+        assertEquals(0, prompt.historyCount());
+        assertEquals("问".repeat(50), prompt.messages().get(1).getText());
+    }
+
+    private static ModelProperties.ModelOption option(int contextWindow) {
+        ModelProperties.ModelOption option = new ModelProperties.ModelOption();
+        option.setModel("qwen3");
+        option.setContextWindow(contextWindow);
+        option.setResponseReserve(0);
+        return option;
+    }
+
+    private static ChatMessage message(String role, String content) {
+        ChatMessage message = new ChatMessage();
+        message.setRole(role);
+        message.setContent(content);
+        return message;
+    }
+}
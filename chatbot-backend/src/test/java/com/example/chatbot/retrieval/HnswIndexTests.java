@@ -0,0 +1,94 @@
+package com.example.chatbot.retrieval;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HnswIndexTests {
+    private static final int DIMENSIONS = 32;
+    private static final int COUNT = 2000;
+    private static final int K = 10;
+
+    private final Random random = new Random(7);
+    private final float[][] vectors = new float[COUNT][];
+
+    @Test
+    void approximateSearchAgreesWithExactSearch() {
+        HnswIndex index = buildIndex();
+        int hits = 0;
+        int queries = 50;
+        for (int q = 0; q < queries; q++) {
+            float[] query = randomVector();
+            Set<Long> expected = exactTopK(query, Set.of());
+            for (HnswIndex.Neighbor neighbor : index.search(query, K, 64)) {
+                if (expected.contains(neighbor.id())) {
+                    hits++;
+                }
+            }
+        }
+        double recall = (double) hits / (queries * K);
+        assertTrue(recall >= 0.9, "recall@10 = " + recall);
+    }
+
+    @Test
+    void removedVectorsAreNotReturnedAndCompactKeepsTheRest() {
+        HnswIndex index = buildIndex();
+        Set<Long> removed = new HashSet<>();
+        for (long id = 0; id < COUNT; id += 3) {
+            index.remove(id);
+            removed.add(id);
+        }
+        float[] query = randomVector();
+
+        List<HnswIndex.Neighbor> found = index.search(query, K, 64);
+        assertEquals(K, found.size());
+        found.forEach(neighbor -> assertFalse(removed.contains(neighbor.id())));
+
+        HnswIndex compacted = index.compact();
+        assertEquals(COUNT - removed.size(), compacted.size());
+        assertEquals(0, compacted.deletedCount());
+        Set<Long> expected = exactTopK(query, removed);
+        long agreed = compacted.search(query, K, 64).stream()
+                .filter(neighbor -> expected.contains(neighbor.id()))
+                .count();
+        assertTrue(agreed >= K - 2, "agreed " + agreed + " of " + K);
+    }
+
+    private HnswIndex buildIndex() {
+        HnswIndex index = new HnswIndex(DIMENSIONS, 16, 100);
+        for (int i = 0; i < COUNT; i++) {
+            vectors[i] = randomVector();
+            index.add(i, vectors[i]);
+        }
+        return index;
+    }
+
+    private Set<Long> exactTopK(float[] query, Set<Long> excluded) {
+        Set<Long> result = new HashSet<>();
+        IntStream.range(0, COUNT)
+                .filter(i -> !excluded.contains((long) i))
+                .boxed()
+                .sorted(Comparator.comparingDouble(i -> -VectorMath.dot(query, vectors[i])))
+                .limit(K)
+                .forEach(i -> result.add((long) i));
+        return result;
+    }
+
+    private float[] randomVector() {
+        float[] vector = new float[DIMENSIONS];
+        for (int i = 0; i < DIMENSIONS; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return VectorMath.normalize(vector);
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.chatbot.retrieval;
+
+import com.example.chatbot.config.RetrievalProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InvertedIndexTests {
+
+    private InvertedIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new InvertedIndex(new RetrievalProperties());
+        index.rebuild(List.of(
+                passage(1L, "常见问题解答", "Q: 如何重置密码？A: 点击登录页面的忘记密码，通过邮箱验证码重置。"),
+                passage(2L, "数据备份说明", "系统每天凌晨2点自动备份，备份文件保留30天。"),
+                passage(3L, "API接口文档", "POST /api/auth/login 参数：username, password")));
+    }
+
+    @Test
+    void tokenizesChineseAsBigramsAndLatinAsWords() {
+        assertEquals(List.of("重置", "置密", "密码", "api", "v2"), TextTokenizer.tokenize("重置密码 API-v2"));
+        assertEquals(List.of("码"), TextTokenizer.tokenize("码"));
+    }
+
+    @Test
+    void splitsLongTextIntoOverlappingPassagesAtSentenceBoundaries() {
+        String text = "第一句话说明安装步骤。第二句话说明初始化设置。第三句话说明故障排除。第四句话说明联系方式。";
+        List<String> chunks = TextChunker.split(text, 24, 12);
+        assertTrue(chunks.size() > 1);
+        chunks.forEach(chunk -> assertTrue(chunk.length() <= 24));
+        assertTrue(chunks.get(0).endsWith("。"));
+        assertTrue(chunks.get(chunks.size() - 1).endsWith("第四句话说明联系方式。"));
+    }
+
+    @Test
+    void ranksEntryMatchingQuestionFirst() {
+        List<ScoredPassage> hits = index.search("我忘记密码了，怎么重置？", 3);
+        assertEquals(1L, hits.get(0).passage().knowledgeId());
+
+        hits = index.search("备份文件保存多久", 3);
+        assertEquals(2L, hits.get(0).passage().knowledgeId());
+    }
+
+    @Test
+    void reflectsIncrementalUpdates() {
+        index.removeKnowledge(2L);
+        assertTrue(index.search("备份", 3).isEmpty());
+
+        index.replace(3L, List.of(
+                passage(3L, "API接口文档", "数据备份接口 POST /api/backup"),
+                new Passage(4L, 3L, "API接口文档", 1, "GET /api/backup/{id}")));
+        assertEquals(3L, index.search("备份", 3).get(0).passage().knowledgeId());
+        assertEquals(3, index.size());
+    }
+
+    private static Passage passage(Long knowledgeId, String title, String text) {
+        return new Passage(knowledgeId, knowledgeId, title, 0, text);
+    }
+}
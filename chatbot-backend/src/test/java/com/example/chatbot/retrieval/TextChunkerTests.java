@@ -0,0 +1,55 @@
+package com.example.chatbot.retrieval;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TextChunkerTests {
+
+    @Test
+    void blankAndShortTextProduceAtMostOneChunk() {
+        assertEquals(List.of(), TextChunker.split(null, 10, 2));
+        assertEquals(List.of(), TextChunker.split(" \n ", 10, 2));
+        assertEquals(List.of("短文本"), TextChunker.split("  短文本  ", 10, 2));
+        assertEquals(List.of("0123456789"), TextChunker.split("0123456789", 10, 2));
+    }
+
+    @Test
+    void textWithoutBoundariesSplitsIntoFixedWindowsWithExactOverlap() {
+        String text = "abcdefghij".repeat(5);
+        assertEquals(List.of(text.substring(0, 20), text.substring(15, 35), text.substring(30, 50)),
+                TextChunker.split(text, 20, 5));
+    }
+
+    @Test
+    void chunksStartAndEndAtSentenceBoundariesInsideTheOverlap() {
+        String text = "甲乙丙。丁戊己。庚辛壬。癸子丑。寅卯辰。";
+        List<String> chunks = TextChunker.split(text, 12, 6);
+        assertEquals(List.of("甲乙丙。丁戊己。庚辛壬。", "庚辛壬。癸子丑。寅卯辰。"), chunks);
+    }
+
+    @Test
+    void overlapAsLargeAsSizeStillAdvancesToTheEnd() {
+        String text = "abcdefghij".repeat(3);
+        List<String> chunks = TextChunker.split(text, 10, 10);
+        assertEquals(21, chunks.size());
+        chunks.forEach(chunk -> assertEquals(10, chunk.length()));
+        assertEquals("abcdefghij", chunks.get(chunks.size() - 1));
+    }
+
+    @Test
+    void neverSplitsSurrogatePairs() {
+        String text = "😀".repeat(30);
+        List<String> chunks = TextChunker.split(text, 7, 3);
+        for (String chunk : chunks) {
+            assertTrue(chunk.length() <= 7);
+            assertFalse(Character.isLowSurrogate(chunk.charAt(0)), chunk);
+            assertFalse(Character.isHighSurrogate(chunk.charAt(chunk.length() - 1)), chunk);
+        }
+        assertTrue(text.endsWith(chunks.get(chunks.size() - 1)));
+    }
+}
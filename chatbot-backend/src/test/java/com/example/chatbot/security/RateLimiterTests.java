@@ -0,0 +1,51 @@
+package com.example.chatbot.security;
+
+import com.example.chatbot.config.RateLimitProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimiterTests {
+
+    @Test
+    void zeroLimitLeavesRouteUnlimitedAndShadowsLaterRoutes() {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setRoutes(List.of(route("/ai/auth/register", 0, null), route("/ai/auth/**", 2, null)));
+        RateLimiter limiter = new RateLimiter(properties);
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(0, limiter.tryAcquire(request("/ai/auth/register")));
+        }
+        assertEquals(0, limiter.tryAcquire(request("/ai/auth/login")));
+        assertEquals(0, limiter.tryAcquire(request("/ai/auth/login")));
+        assertTrue(limiter.tryAcquire(request("/ai/auth/login")) > 0);
+    }
+
+    @Test
+    void zeroBurstRejectsEveryRequest() {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setRoutes(List.of(route("/ai/**", 60, 0)));
+        RateLimiter limiter = new RateLimiter(properties);
+
+        assertTrue(limiter.tryAcquire(request("/ai/chat/send")) > 0);
+    }
+
+    private static RateLimitProperties.Route route(String pattern, int limit, Integer burst) {
+        RateLimitProperties.Route route = new RateLimitProperties.Route();
+        route.setPattern(pattern);
+        route.setKey(RateLimitProperties.KeyType.IP);
+        route.setLimit(limit);
+        route.setBurst(burst);
+        return route;
+    }
+
+    private static MockHttpServletRequest request(String path) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", path);
+        request.setRemoteAddr("10.0.0.1");
+        return request;
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.chatbot.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketTests {
+
+    @Test
+    void allowsBurstThenRejectsUntilRefilled() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(Duration.ofMillis(50).toNanos(), 3);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, bucket.tryAcquire());
+        }
+        long wait = bucket.tryAcquire();
+        assertTrue(wait > 0 && wait <= Duration.ofMillis(50).toNanos());
+
+        Thread.sleep(60);
+        assertEquals(0, bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire() > 0);
+    }
+
+    @Test
+    void grantsExactlyCapacityUnderContention() throws InterruptedException {
+        // 补充间隔足够长，测试期间不会补充令牌
+        TokenBucket bucket = new TokenBucket(Duration.ofHours(1).toNanos(), 100);
+        AtomicInteger granted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int j = 0; j < 1000; j++) {
+                    if (bucket.tryAcquire() == 0) {
+                        granted.incrementAndGet();
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(100, granted.get());
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.chatbot.security;
+
+import com.example.chatbot.entity.User;
+import com.example.chatbot.entity.UserRole;
+import com.example.chatbot.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class VerifiedTokenCacheTests {
+    private static final String SECRET = "404E635266556A586E3272357538782F413F4428472B4B6250645367566B5970";
+
+    private final JwtTokenProvider provider = new JwtTokenProvider();
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final String token;
+
+    VerifiedTokenCacheTests() {
+        ReflectionTestUtils.setField(provider, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(provider, "jwtExpirationInMs", 3_600_000);
+        provider.init();
+        List<SimpleGrantedAuthority> authorities = List.of(new SimpleGrantedAuthority("ROLE_ADMIN"));
+        AuthenticatedUser user = new AuthenticatedUser(1L, "alice", null, authorities);
+        token = provider.generateToken(new UsernamePasswordAuthenticationToken(user, null, authorities));
+    }
+
+    @Test
+    void unchangedUserIsBuiltFromClaimsAndCached() {
+        stamp(null);
+        VerifiedTokenCache cache = newCache(60_000);
+
+        AuthenticatedUser principal = cache.verify(token);
+        cache.verify(token);
+
+        assertEquals(1L, principal.getId());
+        assertEquals(List.of("ROLE_ADMIN"), roles(principal));
+        verify(userRepository, times(1)).findCredentialsStamp(1L);
+    }
+
+    @Test
+    void tokenOfDeletedUserIsRejected() {
+        // 重启后内存中没有任何变更记录，仍需拒绝已删除用户的令牌
+        when(userRepository.findCredentialsStamp(1L)).thenReturn(Optional.empty());
+
+        assertNull(newCache(60_000).verify(token));
+    }
+
+    @Test
+    void tokenIssuedBeforeCredentialsChangedUsesRolesFromDatabase() {
+        stamp(LocalDateTime.now().plusSeconds(1));
+        User demoted = new User();
+        demoted.setId(1L);
+        demoted.setUsername("alice");
+        demoted.setRoles(Set.of(UserRole.ROLE_USER));
+        when(userRepository.findById(1L)).thenReturn(Optional.of(demoted));
+
+        AuthenticatedUser principal = newCache(60_000).verify(token);
+
+        assertEquals(List.of("ROLE_USER"), roles(principal));
+    }
+
+    @Test
+    void userChangedEventEvictsCachedTokens() {
+        stamp(null);
+        VerifiedTokenCache cache = newCache(60_000);
+        cache.verify(token);
+
+        cache.onUserChanged(new UserChangedEvent(1L));
+        when(userRepository.findCredentialsStamp(1L)).thenReturn(Optional.empty());
+
+        assertNull(cache.verify(token));
+    }
+
+    @Test
+    void expiredCacheEntryIsCheckedAgainstDatabase() throws InterruptedException {
+        // 其他实例删除了用户，本实例只能在缓存条目到期后感知
+        stamp(null);
+        VerifiedTokenCache cache = newCache(50);
+        assertNotNull(cache.verify(token));
+
+        when(userRepository.findCredentialsStamp(1L)).thenReturn(Optional.empty());
+        Thread.sleep(100);
+
+        assertNull(cache.verify(token));
+    }
+
+    @Test
+    void malformedTokenIsRejected() {
+        VerifiedTokenCache cache = newCache(60_000);
+
+        assertNull(cache.verify("not-a-jwt"));
+        assertNull(cache.verify(token.substring(0, token.length() - 10)));
+    }
+
+    private VerifiedTokenCache newCache(long cacheTtlInMs) {
+        return new VerifiedTokenCache(provider, userRepository, cacheTtlInMs, 100);
+    }
+
+    private void stamp(LocalDateTime credentialsChangedAt) {
+        UserRepository.CredentialsStamp stamp = mock(UserRepository.CredentialsStamp.class);
+        when(stamp.getId()).thenReturn(1L);
+        when(stamp.getCredentialsChangedAt()).thenReturn(credentialsChangedAt);
+        when(userRepository.findCredentialsStamp(1L)).thenReturn(Optional.of(stamp));
+    }
+
+    private static List<String> roles(AuthenticatedUser principal) {
+        return principal.getAuthorities().stream().map(GrantedAuthority::getAuthority).toList();
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.chatbot.service;
+
+import com.example.chatbot.config.ChatProperties;
+import com.example.chatbot.entity.ChatMessage;
+import com.example.chatbot.repository.ChatMessageRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class ChatMessageWriterTests {
+
+    private final ChatMessageRepository repository = mock(ChatMessageRepository.class);
+    // 每次 saveAll 收到的消息内容
+    private final List<List<String>> batches = new CopyOnWriteArrayList<>();
+    private final ChatProperties chatProperties = new ChatProperties();
+    private ChatMessageWriter writer;
+
+    ChatMessageWriterTests() {
+        ChatProperties.Persistence persistence = chatProperties.getPersistence();
+        persistence.setWriteBehind(true);
+        // 等待时间足够长，只有攒满一批或 awaitUserWrites 才会触发写入
+        persistence.setMaxDelay(Duration.ofSeconds(30));
+        persistence.setFlushTimeout(Duration.ofSeconds(5));
+        doAnswer(invocation -> {
+            List<ChatMessage> messages = invocation.getArgument(0);
+            List<String> contents = messages.stream().map(ChatMessage::getContent).toList();
+            batches.add(contents);
+            if (contents.contains("坏消息")) {
+                throw new IllegalStateException("constraint violation");
+            }
+            return messages;
+        }).when(repository).saveAll(anyList());
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        writer.shutdown();
+    }
+
+    @Test
+    void disabledWriterRejectsEnqueue() {
+        chatProperties.getPersistence().setWriteBehind(false);
+        writer = newWriter();
+
+        assertFalse(writer.enqueue(1L, List.of(message("问")), null));
+    }
+
+    @Test
+    void queuedTurnsAreWrittenInOneBatchWhenAReaderFlushes() {
+        writer = newWriter();
+        AtomicInteger persisted = new AtomicInteger();
+        for (int i = 0; i < 3; i++) {
+            assertTrue(writer.enqueue(1L, List.of(message("问" + i), message("答" + i)), persisted::incrementAndGet));
+        }
+
+        long start = System.nanoTime();
+        writer.awaitUserWrites(1L);
+
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).compareTo(Duration.ofSeconds(5)) < 0);
+        assertEquals(List.of(List.of("问0", "答0", "问1", "答1", "问2", "答2")), batches);
+        assertEquals(3, persisted.get());
+    }
+
+    @Test
+    void failedBatchIsRetriedTurnByTurnAndOnlyTheBadTurnIsDropped() {
+        writer = newWriter();
+        List<String> persisted = new ArrayList<>();
+        writer.enqueue(1L, List.of(message("问0")), () -> persisted.add("问0"));
+        writer.enqueue(1L, List.of(message("坏消息")), () -> persisted.add("坏消息"));
+        writer.enqueue(1L, List.of(message("问2")), () -> persisted.add("问2"));
+
+        writer.awaitUserWrites(1L);
+
+        assertEquals(List.of(
+                List.of("问0", "坏消息", "问2"),
+                List.of("问0"),
+                List.of("坏消息"),
+                List.of("问2")), batches);
+        assertEquals(List.of("问0", "问2"), persisted);
+    }
+
+    private ChatMessageWriter newWriter() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+        ChatMessageWriter created = new ChatMessageWriter(repository, mock(ChatSessionService.class),
+                transactionTemplate, chatProperties);
+        created.start();
+        return created;
+    }
+
+    private static ChatMessage message(String content) {
+        ChatMessage message = new ChatMessage();
+        message.setRole("user");
+        message.setContent(content);
+        return message;
+    }
+}
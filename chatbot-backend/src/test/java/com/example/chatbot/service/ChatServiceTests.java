@@ -0,0 +1,202 @@
+package com.example.chatbot.service;
+
+import com.example.chatbot.cache.ResponseCache;
+import com.example.chatbot.cache.SessionHistoryCache;
+import com.example.chatbot.cache.SimilarQuestionIndex;
+import com.example.chatbot.config.AsyncConfig;
+import com.example.chatbot.config.ChatProperties;
+import com.example.chatbot.config.ModelProperties;
+import com.example.chatbot.dto.ChatRequest;
+import com.example.chatbot.dto.EndpointStatusResponse;
+import com.example.chatbot.entity.User;
+import com.example.chatbot.exception.BusinessException;
+import com.example.chatbot.exception.ErrorCode;
+import com.example.chatbot.inference.AdmissionController;
+import com.example.chatbot.inference.ModelLifecycleManager;
+import com.example.chatbot.inference.ModelRouter;
+import com.example.chatbot.inference.OllamaAdminClient;
+import com.example.chatbot.inference.RequestCoalescer;
+import com.example.chatbot.metrics.ChatMetrics;
+import com.example.chatbot.prompt.PromptAssembler;
+import com.example.chatbot.repository.ChatMessageRepository;
+import com.example.chatbot.repository.UserRepository;
+import com.example.chatbot.security.AuthenticatedUser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.ollama.OllamaChatModel;
+import org.springframework.ai.ollama.api.OllamaApi;
+import org.springframework.ai.ollama.api.OllamaOptions;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ChatServiceTests {
+    private static final String BASE_URL = "http://127.0.0.1:11434";
+
+    private final ChatProperties chatProperties = new ChatProperties();
+    private final ModelProperties modelProperties = new ModelProperties();
+    private final ChatClient chatClient = mock(ChatClient.class, RETURNS_DEEP_STUBS);
+    private final ChatPersistenceService chatPersistenceService = mock(ChatPersistenceService.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final Scheduler chatStreamScheduler;
+    private final AdmissionController admissionController;
+    private final ModelRouter modelRouter;
+    private final ChatService chatService;
+
+    ChatServiceTests() {
+        ModelProperties.ModelOption option = new ModelProperties.ModelOption();
+        option.setModel("qwen3:4b");
+        option.setMaxConcurrency(1);
+        modelProperties.setOptions(Map.of("qwen3", option));
+        modelProperties.getLifecycle().setEnabled(false);
+        chatStreamScheduler = new AsyncConfig().chatStreamScheduler(chatProperties);
+        admissionController = new AdmissionController(modelProperties);
+        OllamaAdminClient adminClient = new OllamaAdminClient(RestClient.builder(), modelProperties);
+        OllamaChatModel defaultChatModel = OllamaChatModel.builder()
+                .ollamaApi(OllamaApi.builder().baseUrl(BASE_URL).build())
+                .defaultOptions(OllamaOptions.builder().model("qwen3:4b").build())
+                .build();
+        modelRouter = new ModelRouter(modelProperties, adminClient,
+                new ModelLifecycleManager(adminClient, modelProperties, BASE_URL), defaultChatModel,
+                model -> chatClient, BASE_URL);
+        modelRouter.bindTo(registry);
+
+        User user = new User();
+        user.setId(1L);
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.getReferenceById(1L)).thenReturn(user);
+        ConversationSummaryService conversationSummaryService = mock(ConversationSummaryService.class);
+        when(conversationSummaryService.current(anyString(), any()))
+                .thenReturn(ConversationSummaryService.SessionSummary.NONE);
+        chatService = new ChatService(mock(ChatMessageRepository.class), mock(KnowledgeService.class),
+                modelProperties, userRepository, chatProperties, chatStreamScheduler,
+                new PromptAssembler(chatProperties),
+                mock(ResponseCache.class), mock(SimilarQuestionIndex.class), mock(SessionHistoryCache.class),
+                chatPersistenceService, mock(ChatSessionService.class), conversationSummaryService, modelRouter,
+                admissionController, new RequestCoalescer(chatProperties), new ChatMetrics(registry),
+                mock(TransactionTemplate.class), new ObjectMapper());
+
+        AuthenticatedUser principal = new AuthenticatedUser(1L, "alice", null, List.of());
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        chatStreamScheduler.dispose();
+    }
+
+    @Test
+    void clientDisconnectCancelsGenerationAndReleasesPermit() {
+        Sinks.Many<String> tokens = Sinks.many().unicast().onBackpressureBuffer();
+        when(chatClient.prompt().messages(anyList()).options(any()).stream().content()).thenReturn(tokens.asFlux());
+        RecordingEmitter emitter = new RecordingEmitter();
+
+        chatService.processMessageStream("s1", "你好", "qwen3", emitter);
+        await(() -> tokens.currentSubscriberCount() > 0);
+        tokens.tryEmitNext("你");
+        tokens.tryEmitNext("好");
+        tokens.tryEmitNext("，");
+        assertEquals(1, admissionController.status().get(0).getActive());
+
+        // 客户端断开：SseEmitter 的完成回调取消订阅
+        emitter.onCompletion.run();
+
+        await(() -> tokens.currentSubscriberCount() == 0);
+        assertEquals(0, admissionController.status().get(0).getActive());
+        EndpointStatusResponse endpoint = modelRouter.status().get(0);
+        assertEquals(1, endpoint.getCancelledCount());
+        assertEquals(3, endpoint.getWastedTokens());
+        assertEquals(0, endpoint.getInFlight());
+        assertEquals(1.0, registry.get("chatbot.endpoint.cancelled").functionCounter().count());
+        assertEquals(3.0, registry.get("chatbot.endpoint.wasted.tokens").functionCounter().count());
+        verify(chatPersistenceService, never()).saveTurn(any(), any(), any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void answerCutOffInsideThinkingFailsTheTurnInsteadOfSavingABlankAnswer() {
+        // 输出长度达到上限时 <think> 没有闭合，整个输出都是思考过程
+        when(chatClient.prompt().messages(anyList()).options(any()).call().content()).thenReturn("<think>先想一想");
+        ChatRequest request = new ChatRequest();
+        request.setSessionId("s1");
+        request.setMessage("你好");
+        request.setModelId("qwen3");
+
+        BusinessException e = assertThrows(BusinessException.class, () -> chatService.processMessage(request));
+
+        assertEquals(ErrorCode.MODEL_NO_ANSWER, e.getErrorCode());
+        assertEquals(0, admissionController.status().get(0).getActive());
+        verify(chatPersistenceService, never()).saveTurn(any(), any(), any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void streamCutOffInsideThinkingEndsWithErrorAndSavesNothing() {
+        when(chatClient.prompt().messages(anyList()).options(any()).stream().content())
+                .thenReturn(Flux.just("<think>", "先想", "一想"));
+        RecordingEmitter emitter = new RecordingEmitter();
+
+        chatService.processMessageStream("s1", "你好", "qwen3", emitter);
+
+        await(() -> emitter.completed);
+        assertEquals(List.of("reasoning", "error"), emitter.events);
+        assertEquals(0, admissionController.status().get(0).getActive());
+        verify(chatPersistenceService, never()).saveTurn(any(), any(), any(), any(), any(), any(), any(), any());
+    }
+
+    // 记录发送的事件名和完成回调，不需要真实的 HTTP 连接
+    private static final class RecordingEmitter extends SseEmitter {
+        final List<String> events = new CopyOnWriteArrayList<>();
+        volatile Runnable onCompletion;
+        volatile boolean completed;
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            String frame = builder.build().iterator().next().getData().toString();
+            events.add(frame.substring("event:".length(), frame.indexOf('\n')));
+        }
+
+        @Override
+        public void onCompletion(Runnable callback) {
+            onCompletion = callback;
+        }
+
+        @Override
+        public void complete() {
+            completed = true;
+        }
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met within 5s");
+            Thread.onSpinWait();
+        }
+    }
+}
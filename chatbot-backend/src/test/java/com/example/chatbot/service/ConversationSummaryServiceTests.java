@@ -0,0 +1,138 @@
+package com.example.chatbot.service;
+
+import com.example.chatbot.config.ChatProperties;
+import com.example.chatbot.config.ModelProperties;
+import com.example.chatbot.entity.ChatMessage;
+import com.example.chatbot.entity.ChatSession;
+import com.example.chatbot.entity.User;
+import com.example.chatbot.inference.AdmissionController;
+import com.example.chatbot.inference.ModelRouter;
+import com.example.chatbot.repository.ChatMessageRepository;
+import com.example.chatbot.repository.ChatSessionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ConversationSummaryServiceTests {
+    private static final LocalDateTime T0 = LocalDateTime.of(2026, 10, 18, 10, 0);
+
+    private final ChatMessageRepository chatMessageRepository = mock(ChatMessageRepository.class);
+    private final ChatSessionRepository chatSessionRepository = mock(ChatSessionRepository.class);
+    private final ModelRouter modelRouter = mock(ModelRouter.class);
+    private final User user = new User();
+    private final ChatSession session = new ChatSession();
+    private final List<ChatMessage> messages = List.of(
+            message(1L, "user", T0), message(2L, "assistant", T0.plusSeconds(1)),
+            message(3L, "user", T0.plusSeconds(2)), message(4L, "assistant", T0.plusSeconds(3)));
+    private final ConversationSummaryService service;
+
+    ConversationSummaryServiceTests() {
+        user.setId(1L);
+        session.setId(10L);
+        session.setSessionId("s1");
+        session.setMessageCount(6);
+        session.setSummarizedCount(0);
+        when(chatSessionRepository.findBySessionIdAndUser("s1", user)).thenReturn(Optional.of(session));
+        when(chatMessageRepository.findBySessionIdAndUserOrderByCreatedAtAscIdAsc(
+                eq("s1"), eq(user), any(Limit.class))).thenReturn(messages);
+        when(modelRouter.<String>call(anyString(), any())).thenReturn("用户询问了退款流程");
+
+        ModelProperties modelProperties = new ModelProperties();
+        ModelProperties.ModelOption option = new ModelProperties.ModelOption();
+        option.setModel("qwen3:4b");
+        modelProperties.setOptions(Map.of("qwen3", option));
+        ChatProperties chatProperties = new ChatProperties();
+        chatProperties.getSummary().setTriggerMessages(6);
+        chatProperties.getSummary().setKeepRecentMessages(2);
+        service = new ConversationSummaryService(chatMessageRepository, chatSessionRepository, modelRouter,
+                new AdmissionController(modelProperties), modelProperties,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), chatProperties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void summarizesOlderTurnsOnlyOnceTheTriggerIsReached() {
+        when(chatSessionRepository.updateSummary(10L, "用户询问了退款流程", T0.plusSeconds(3), 4L, 4, 0))
+                .thenReturn(1);
+
+        service.onTurnSaved("s1", user, 5);
+        verify(chatSessionRepository, never()).findBySessionIdAndUser("s1", user);
+
+        service.onTurnSaved("s1", user, 6);
+        verify(chatSessionRepository, timeout(5000))
+                .updateSummary(10L, "用户询问了退款流程", T0.plusSeconds(3), 4L, 4, 0);
+        await(() -> !service.current("s1", user).isEmpty());
+        ConversationSummaryService.SessionSummary summary = service.current("s1", user);
+        assertEquals("用户询问了退款流程", summary.text());
+        assertEquals(4L, summary.untilId());
+    }
+
+    @Test
+    void summaryLostToAConcurrentUpdateIsNotCached() {
+        // 其他任务已先更新摘要，条件更新影响 0 行
+        when(chatSessionRepository.updateSummary(any(), any(), any(), any(), anyInt(), anyInt())).thenReturn(0);
+
+        service.onTurnSaved("s1", user, 6);
+        // 摘要单线程按顺序生成，第二个会话开始处理时第一个任务已经结束
+        service.onTurnSaved("s2", user, 6);
+        verify(chatSessionRepository, timeout(5000)).findBySessionIdAndUser("s2", user);
+
+        verify(chatSessionRepository).updateSummary(10L, "用户询问了退款流程", T0.plusSeconds(3), 4L, 4, 0);
+        assertTrue(service.current("s1", user).isEmpty());
+    }
+
+    @Test
+    void unsummarizedKeepsOnlyMessagesAfterTheSummaryPosition() {
+        // 同一时间戳的消息按 id 区分
+        List<ChatMessage> history = List.of(
+                message(1L, "user", T0), message(2L, "assistant", T0.plusSeconds(1)),
+                message(3L, "user", T0.plusSeconds(1)), message(4L, "assistant", T0.plusSeconds(2)));
+        ConversationSummaryService.SessionSummary summary =
+                new ConversationSummaryService.SessionSummary("摘要", T0.plusSeconds(1), 2L);
+
+        assertEquals(List.of(3L, 4L), summary.unsummarized(history).stream().map(ChatMessage::getId).toList());
+        assertSame(history, ConversationSummaryService.SessionSummary.NONE.unsummarized(history));
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met within 5s");
+            Thread.onSpinWait();
+        }
+    }
+
+    private static ChatMessage message(Long id, String role, LocalDateTime createdAt) {
+        ChatMessage message = new ChatMessage();
+        message.setId(id);
+        message.setRole(role);
+        message.setContent(role + id);
+        message.setCreatedAt(createdAt);
+        return message;
+    }
+}
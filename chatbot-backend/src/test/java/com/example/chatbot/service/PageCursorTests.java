@@ -0,0 +1,63 @@
+package com.example.chatbot.service;
+
+import com.example.chatbot.config.ChatProperties;
+import com.example.chatbot.exception.BusinessException;
+import com.example.chatbot.exception.ErrorCode;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PageCursorTests {
+
+    @Test
+    void roundTripsTimestampsOfEveryPrecision() {
+        // LocalDateTime.toString 会省略为零的秒和纳秒，解码时仍需得到相同的值
+        for (LocalDateTime timestamp : new LocalDateTime[]{
+                LocalDateTime.of(2026, 10, 18, 10, 0),
+                LocalDateTime.of(2026, 10, 18, 10, 0, 5),
+                LocalDateTime.of(2026, 10, 18, 10, 0, 5, 123_000_000),
+                LocalDateTime.of(2026, 10, 18, 10, 0, 5, 123_456_789)}) {
+            PageCursor cursor = new PageCursor(timestamp, Long.MAX_VALUE);
+            String encoded = cursor.encode();
+            assertFalse(encoded.contains("=") || encoded.contains("+") || encoded.contains("/"), encoded);
+            assertEquals(cursor, PageCursor.decode(encoded));
+        }
+    }
+
+    @Test
+    void blankCursorMeansFirstPage() {
+        assertNull(PageCursor.decode(null));
+        assertNull(PageCursor.decode(""));
+        assertNull(PageCursor.decode("  "));
+    }
+
+    @Test
+    void malformedCursorsAreRejectedAsInvalidParameter() {
+        for (String cursor : new String[]{
+                "不是base64", encode("2026-10-18T10:00"), encode("2026-10-18T10:00|abc"),
+                encode("yesterday|1"), encode("|1"), encode("2026-10-18T10:00|")}) {
+            BusinessException e = assertThrows(BusinessException.class, () -> PageCursor.decode(cursor), cursor);
+            assertEquals(ErrorCode.INVALID_PARAMETER, e.getErrorCode());
+        }
+    }
+
+    @Test
+    void pageSizeFallsBackToDefaultAndIsCappedAtMax() {
+        ChatProperties.Paging paging = new ChatProperties.Paging();
+        assertEquals(20, PageCursor.pageSize(null, paging));
+        assertEquals(1, PageCursor.pageSize(1, paging));
+        assertEquals(100, PageCursor.pageSize(1000, paging));
+        assertThrows(BusinessException.class, () -> PageCursor.pageSize(0, paging));
+    }
+
+    private static String encode(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
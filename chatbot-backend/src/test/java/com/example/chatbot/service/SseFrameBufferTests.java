@@ -0,0 +1,59 @@
+package com.example.chatbot.service;
+
+import com.example.chatbot.config.ChatProperties;
+import org.junit.jupiter.api.Test;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SseFrameBufferTests {
+
+    private final ChatProperties.Frame properties = new ChatProperties.Frame();
+    private final List<String> frames = new CopyOnWriteArrayList<>();
+
+    @Test
+    void mergesChunksUntilSentenceEndSizeLimitOrEventChange() {
+        properties.setMaxChars(5);
+        properties.setMaxDelay(Duration.ofMinutes(1));
+        SseFrameBuffer buffer = newBuffer();
+
+        buffer.append("reasoning", "想");
+        buffer.append("message", "你好");
+        buffer.append("message", "，这是");
+        buffer.append("message", "回答");
+        buffer.append("message", "。");
+        buffer.append("message", "还有");
+        buffer.flush();
+
+        assertEquals(List.of("reasoning:想", "message:你好，这是", "message:回答。", "message:还有"), frames);
+    }
+
+    @Test
+    void sendsPendingChunksAfterMaxDelayAndNothingAfterClose() throws InterruptedException {
+        properties.setMaxDelay(Duration.ofMillis(20));
+        SseFrameBuffer buffer = newBuffer();
+
+        buffer.append("message", "你");
+        buffer.append("message", "好");
+        long deadline = System.currentTimeMillis() + 2000;
+        while (frames.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(List.of("message:你好"), frames);
+
+        buffer.append("message", "再见");
+        buffer.close();
+        Thread.sleep(100);
+        buffer.flush();
+        assertEquals(1, frames.size());
+    }
+
+    private SseFrameBuffer newBuffer() {
+        return new SseFrameBuffer(properties, (event, data) -> frames.add(event + ":" + data),
+                Schedulers.boundedElastic());
+    }
+}
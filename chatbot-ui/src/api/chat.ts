@@ -16,17 +16,39 @@ export interface ChatHistoryItem {
   role: string
   message: string
   modelId?: string
+  createdAt?: string
+}
+
+export interface HistoryQuery {
+  before?: string
+  after?: string
+  limit?: number
+}
+
+export interface ChatSessionItem {
+  sessionId: string
+  title: string
+  modelId?: string
+  messageCount: number
+  createdAt: string
+  lastActivityAt: string
+}
+
+// 键集分页结果，nextCursor 为空表示没有更多数据
+export interface CursorPage<T> {
+  items: T[]
+  nextCursor: string | null
 }
 
 export const chatApi = {
-  // 获取所有会话
-  getAllSessions: () => {
-    return request.get<string[]>('/ai/chat/sessions')
+  // 分页获取会话，按最后活跃时间倒序
+  getSessions: (cursor?: string, limit?: number) => {
+    return request.get<CursorPage<ChatSessionItem>>('/ai/chat/sessions', { params: { cursor, limit } })
   },
 
-  // 获取会话历史
-  getHistory: (sessionId: string) => {
-    return request.get<ChatHistoryItem[]>(`/ai/chat/history/${sessionId}`)
+  // 分页获取会话历史，默认返回最新一页，before 游标向更早翻页
+  getHistory: (sessionId: string, query?: HistoryQuery) => {
+    return request.get<CursorPage<ChatHistoryItem>>(`/ai/chat/history/${sessionId}`, { params: query })
   },
 
   // 发送消息
@@ -1,6 +1,7 @@
 import { defineStore } from 'pinia'
 import { ref } from 'vue'
 import { chatApi } from '@/api/chat'
+import type { ChatHistoryItem, ChatSessionItem, CursorPage } from '@/api/chat'
 
 // 定义消息接口
 export interface Message {
@@ -29,6 +30,12 @@ export interface ChatMessage {
 export const useChatStore = defineStore('chat', () => {
   // 状态
   const sessions = ref<string[]>([])
+  // 会话 id -> 标题（会话的第一个问题）
+  const sessionTitles = ref<Record<string, string>>({})
+  // 下一页会话的游标，为空表示已全部加载
+  const nextSessionCursor = ref<string | null>(null)
+  // 当前会话更早一页消息的游标，为空表示已加载到第一条
+  const historyCursor = ref<string | null>(null)
   const currentSessionId = ref<string>('')
   const messages = ref<ChatMessage[]>([])
   const availableModels = ref<string[]>([])
@@ -51,7 +58,8 @@ export const useChatStore = defineStore('chat', () => {
   // 加载会话列表
   const loadSessions = async () => {
     try {
-      const response = await chatApi.getAllSessions()
+      const page = await chatApi.getSessions()
+      const response = rememberSessions(page)
       // 合并后端返回的会话和前端未发送消息的会话
       const backendSessions = new Set(response)
       const frontendSessions = sessions.value.filter(id => !backendSessions.has(id))
@@ -61,13 +69,10 @@ export const useChatStore = defineStore('chat', () => {
         currentSessionId.value = sessions.value[0]
         // 只加载后端存在的会话的历史记录
         if (backendSessions.has(currentSessionId.value)) {
-          const history = await chatApi.getHistory(currentSessionId.value)
-          messages.value = history.map((item: any) => ({
-            role: item.role || 'assistant',
-            content: item.message
-          }))
+          await loadLatestHistory(currentSessionId.value)
         } else {
           messages.value = []
+          historyCursor.value = null
         }
       }
     } catch (error) {
@@ -76,16 +81,63 @@ export const useChatStore = defineStore('chat', () => {
     }
   }
 
+  // 加载下一页会话
+  const loadMoreSessions = async () => {
+    if (!nextSessionCursor.value) {
+      return
+    }
+    try {
+      const page = await chatApi.getSessions(nextSessionCursor.value)
+      const loaded = new Set(sessions.value)
+      sessions.value.push(...rememberSessions(page).filter(id => !loaded.has(id)))
+    } catch (error) {
+      console.error('Failed to load more sessions:', error)
+      throw error
+    }
+  }
+
+  // 记录一页会话的标题和下一页游标，返回会话 id
+  const rememberSessions = (page: CursorPage<ChatSessionItem>) => {
+    page.items.forEach(item => {
+      sessionTitles.value[item.sessionId] = item.title
+    })
+    nextSessionCursor.value = page.nextCursor
+    return page.items.map(item => item.sessionId)
+  }
+
+  // 加载会话最新一页消息
+  const loadLatestHistory = async (sessionId: string) => {
+    const page = await chatApi.getHistory(sessionId)
+    messages.value = page.items.map(toChatMessage)
+    historyCursor.value = page.nextCursor
+  }
+
+  // 加载当前会话更早的消息
+  const loadEarlierMessages = async () => {
+    if (!historyCursor.value) {
+      return
+    }
+    try {
+      const page = await chatApi.getHistory(currentSessionId.value, { before: historyCursor.value })
+      messages.value.unshift(...page.items.map(toChatMessage))
+      historyCursor.value = page.nextCursor
+    } catch (error) {
+      console.error('Failed to load earlier messages:', error)
+      throw error
+    }
+  }
+
+  const toChatMessage = (item: ChatHistoryItem): ChatMessage => ({
+    role: item.role === 'user' ? 'user' : 'assistant',
+    content: item.message
+  })
+
   // 切换会话
   const switchSession = async (sessionId: string) => {
     try {
       // 先清空当前消息
       messages.value = []
-      const history = await chatApi.getHistory(sessionId)
-      messages.value = history.map((item: any) => ({
-        role: item.role || 'assistant',
-        content: item.message
-      }))
+      await loadLatestHistory(sessionId)
       currentSessionId.value = sessionId
     } catch (error) {
       console.error('Failed to switch session:', error)
@@ -101,6 +153,7 @@ export const useChatStore = defineStore('chat', () => {
       sessions.value.unshift(newSessionId)
       currentSessionId.value = newSessionId
       messages.value = []
+      historyCursor.value = null
     } catch (error) {
       console.error('Failed to create new session:', error)
       throw error
@@ -112,6 +165,7 @@ export const useChatStore = defineStore('chat', () => {
     try {
       await chatApi.deleteSession(sessionId)
       sessions.value = sessions.value.filter(id => id !== sessionId)
+      delete sessionTitles.value[sessionId]
       if (currentSessionId.value === sessionId) {
         if (sessions.value.length > 0) {
           await switchSession(sessions.value[0])
@@ -137,6 +191,9 @@ export const useChatStore = defineStore('chat', () => {
     }
 
     messages.value.push(userMessage)
+    if (!sessionTitles.value[currentSessionId.value]) {
+      sessionTitles.value[currentSessionId.value] = content
+    }
 
     try {
       const response = await chatApi.sendMessage({
@@ -158,6 +215,9 @@ export const useChatStore = defineStore('chat', () => {
   // 重置状态
   const resetState = () => {
     sessions.value = []
+    sessionTitles.value = {}
+    nextSessionCursor.value = null
+    historyCursor.value = null
     currentSessionId.value = ''
     messages.value = []
     availableModels.value = []
@@ -166,12 +226,17 @@ export const useChatStore = defineStore('chat', () => {
 
   return {
     sessions,
+    sessionTitles,
+    nextSessionCursor,
+    historyCursor,
     currentSessionId,
     messages,
     availableModels,
     selectedModel,
     loadAvailableModels,
     loadSessions,
+    loadMoreSessions,
+    loadEarlierMessages,
     switchSession,
     createNewChat,
     deleteSession,